@@ -4,12 +4,18 @@ plugins {
     java
     kotlin("jvm") version "1.4.0"
     application
+    id("me.champeau.gradle.jmh") version "0.5.2"
 }
 
 application {
     mainClassName = "Main"
 }
 
+jmh {
+    jmhVersion = "1.25.2"
+    profilers = listOf("gc")
+}
+
 tasks.withType<KotlinCompile> {
     kotlinOptions.jvmTarget = "1.8"
 }
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import com.compilingdogs.parser.ParserKt;
+import com.compilingdogs.parser.ParserOptions;
+import com.compilingdogs.parser.ast.AlternationStrategy;
+import com.compilingdogs.parser.ast.FASTNode;
+import org.openjdk.jmh.annotations.*;
+import stages.CharArraySourceReader;
+import stages.LexicalAnalyzer;
+import tokens.Token;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse throughput with sequential and parallel alternations, see {@link ParserOptions#getAlternationStrategy()},
+ * for one parsing thread and for as many parsing threads as there are processors. In the concurrent case every
+ * parallel alternation competes with the other parses for the pool of the parser, see
+ * {@link ParserOptions#getParallelPool()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlternationStrategyBenchmark {
+
+    @Param({"case_5", "synthetic_100"})
+    public String program;
+
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    public AlternationStrategy strategy;
+
+    private List<Token> tokens;
+    private ParserOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tokens = LexicalAnalyzer.getInstance().tokenize(new CharArraySourceReader(BenchmarkPrograms.load(program)));
+        options = new ParserOptions();
+        options.setAlternationStrategy(strategy);
+        // The grammar is built on the first parse; keep that out of the measured calls.
+        ParserKt.parse(tokens, options);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public FASTNode singleThread() {
+        return ParserKt.parse(tokens, options);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public FASTNode concurrent() {
+        return ParserKt.parse(tokens, options);
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Programs the stage benchmarks run on. A name is either a file of the test corpus, e.g. {@code case_0},
+ * {@code synthetic_N} for a generated program of {@code N} statements, {@code tokens_N} for a generated program of
+ * about {@code N} tokens, {@code nested_N} for one expression nested {@code N} parentheses deep, or {@code chain_N} for
+ * one expression of {@code N} operators.
+ */
+final class BenchmarkPrograms {
+    private static final String SYNTHETIC_PREFIX = "synthetic_";
+    private static final String TOKENS_PREFIX = "tokens_";
+    private static final String NESTED_PREFIX = "nested_";
+    private static final String CHAIN_PREFIX = "chain_";
+
+    private BenchmarkPrograms() {}
+
+    static String load(String name) throws IOException {
+        if (name.startsWith(SYNTHETIC_PREFIX)) {
+            return synthetic(Integer.parseInt(name.substring(SYNTHETIC_PREFIX.length())));
+        }
+        if (name.startsWith(TOKENS_PREFIX)) {
+            return generated(Long.parseLong(name.substring(TOKENS_PREFIX.length())));
+        }
+        if (name.startsWith(NESTED_PREFIX)) {
+            return nested(Integer.parseInt(name.substring(NESTED_PREFIX.length())));
+        }
+        if (name.startsWith(CHAIN_PREFIX)) {
+            return chain(Integer.parseInt(name.substring(CHAIN_PREFIX.length())));
+        }
+        return Files.readString(new File("src/test/resources/" + name + ".pd").toPath());
+    }
+
+    /**
+     * Builds a program of the given number of top-level statements with the default {@link ProgramGenerator} options,
+     * so that its size, and the work done by every stage, grows linearly with the number of statements.
+     */
+    static String synthetic(int statements) {
+        return new ProgramGenerator().setStatements(statements).generate();
+    }
+
+    /**
+     * Builds a program of about the given number of tokens with the default {@link ProgramGenerator} options.
+     */
+    static String generated(long tokens) {
+        return new ProgramGenerator().setTargetTokens(tokens).generate();
+    }
+
+    /**
+     * Builds a program whose one expression, {@code ((a + 1) + 1) ...}, has the given number of parentheses.
+     */
+    static String nested(int depth) {
+        var expression = new StringBuilder("a");
+        for (int i = 0; i < depth; ++i) {
+            expression.insert(0, '(').append(" + 1)");
+        }
+        return "var a := 1\nvar x := " + expression + "\n";
+    }
+
+    /**
+     * Builds a program whose one expression, {@code a + 1 * a - 1 ...}, has the given number of operators, cycling
+     * through operators of every precedence level.
+     */
+    static String chain(int operators) {
+        String[] cycle = {"+", "*", "-", "/", "<", "and", "=", "or"};
+        var expression = new StringBuilder("a");
+        for (int i = 0; i < operators; ++i) {
+            expression.append(' ').append(cycle[i % cycle.length]).append(i % 2 == 0 ? " 1" : " a");
+        }
+        return "var a := 1\nvar x := " + expression + "\n";
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import stages.LexicalAnalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures per-character classification over the test corpus. Run with the GC profiler
+ * ({@code gradlew jmh}, see {@code jmh.profilers}) and compare {@code gc.alloc.rate.norm}:
+ * the table-driven {@link LexicalAnalyzer.State#getState(char)} must stay at 0 B/op,
+ * while {@code hashSetLookup} reproduces the former boxing and {@code String.valueOf} probes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CharClassificationBenchmark {
+
+    private static final HashSet<String> operatorTokenChars = new HashSet<>(
+            Arrays.asList("/", "-", "*", "+", "=", ">", "<", ":")
+    );
+    private static final HashSet<String> separatorTokenChars = new HashSet<>(
+            Arrays.asList(";", ",", ".", " ", "\t", "\n", "\r")
+    );
+
+    private char[] corpus;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var builder = new StringBuilder();
+        var sources = new File("src/test/resources").listFiles((dir, name) -> name.endsWith(".pd"));
+        for (File source : sources) {
+            builder.append(Files.readString(source.toPath()));
+        }
+        corpus = builder.toString().toCharArray();
+    }
+
+    @Benchmark
+    public void classificationTable(Blackhole blackhole) {
+        for (char c : corpus) {
+            blackhole.consume(LexicalAnalyzer.State.getState(c));
+        }
+    }
+
+    @Benchmark
+    public void hashSetLookup(Blackhole blackhole) {
+        for (char c : corpus) {
+            blackhole.consume(legacyState(c));
+        }
+    }
+
+    private static LexicalAnalyzer.State legacyState(Character currChar) {
+        if (Character.isLetter(currChar) || Character.isDigit(currChar) || currChar == '_') {
+            return LexicalAnalyzer.State.READ_ALPHA;
+        } else if (operatorTokenChars.contains(String.valueOf(currChar)) || currChar == '.') {
+            return LexicalAnalyzer.State.READ_OP;
+        } else if (separatorTokenChars.contains(String.valueOf(currChar))) {
+            return LexicalAnalyzer.State.READ_SEP;
+        } else {
+            return LexicalAnalyzer.State.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import com.compilingdogs.parser.ParserKt;
+import com.compilingdogs.parser.ParserOptions;
+import com.compilingdogs.parser.ast.FASTNode;
+import org.openjdk.jmh.annotations.*;
+import stages.CharArraySourceReader;
+import stages.LexicalAnalyzer;
+import tokens.Token;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse time of the compiled grammar, see {@link ParserOptions#getCompiled()}, against walking the grammar nodes.
+ * With the GC profiler, {@code gc.alloc.rate.norm} shows how much of the walk goes to per-step results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompiledGrammarBenchmark {
+
+    @Param({"case_0", "case_10", "synthetic_100", "synthetic_1000"})
+    public String program;
+
+    @Param({"true", "false"})
+    public boolean compiled;
+
+    private List<Token> tokens;
+    private ParserOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tokens = LexicalAnalyzer.getInstance().tokenize(new CharArraySourceReader(BenchmarkPrograms.load(program)));
+        options = new ParserOptions();
+        options.setCompiled(compiled);
+        // The grammar is built and compiled on the first parse; keep that out of the measured calls.
+        ParserKt.parse(tokens, options);
+    }
+
+    @Benchmark
+    public FASTNode parse() {
+        return ParserKt.parse(tokens, options);
+    }
+}
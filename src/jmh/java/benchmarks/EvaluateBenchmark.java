@@ -0,0 +1,51 @@
+package benchmarks;
+
+import com.compilingdogs.interpretation.Runtime;
+import com.compilingdogs.interpretation.value.Value;
+import com.compilingdogs.parser.ParserKt;
+import com.compilingdogs.parser.ast.FASTNode;
+import org.openjdk.jmh.annotations.*;
+import stages.CharArraySourceReader;
+import stages.LexicalAnalyzer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interpreter stage alone: the program is parsed once per trial and only {@code evaluate} on a fresh
+ * {@link Runtime} is measured. Only programs that read no input are listed; their output is discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluateBenchmark {
+
+    @Param({"case_0", "case_5", "case_11", "synthetic_10", "synthetic_100", "synthetic_1000"})
+    public String program;
+
+    private FASTNode tree;
+    private PrintStream standardOutput;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var tokens = LexicalAnalyzer.getInstance().tokenize(new CharArraySourceReader(BenchmarkPrograms.load(program)));
+        tree = ParserKt.parse(tokens);
+        standardOutput = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(standardOutput);
+    }
+
+    @Benchmark
+    public Value evaluate() {
+        return tree.evaluate(new Runtime());
+    }
+}
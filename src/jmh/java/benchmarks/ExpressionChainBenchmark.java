@@ -0,0 +1,48 @@
+package benchmarks;
+
+import com.compilingdogs.parser.ParserKt;
+import com.compilingdogs.parser.ParserOptions;
+import com.compilingdogs.parser.ast.FASTNode;
+import org.openjdk.jmh.annotations.*;
+import stages.CharArraySourceReader;
+import stages.LexicalAnalyzer;
+import tokens.Token;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse time of one expression of a growing number of operators, for the operator precedence node walked and
+ * compiled. The time should grow linearly with the number of operators.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionChainBenchmark {
+
+    @Param({"chain_10", "chain_100", "chain_1000"})
+    public String program;
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    private List<Token> tokens;
+    private ParserOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tokens = LexicalAnalyzer.getInstance().tokenize(new CharArraySourceReader(BenchmarkPrograms.load(program)));
+        options = new ParserOptions();
+        options.setCompiled(compiled);
+        ParserKt.parse(tokens, options);
+    }
+
+    @Benchmark
+    public FASTNode parse() {
+        return ParserKt.parse(tokens, options);
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import stages.CharArraySourceReader;
+import stages.LexerOptions;
+import stages.LexicalAnalyzer;
+import stages.StreamSourceReader;
+import tokens.Token;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the in-memory {@code char[]} scanning engine and the memory-mapped input mode
+ * with the original per-character {@link FileReader} loop.
+ * The source is one of the test programs repeated {@code copies} times, so the large setting produces a multi-megabyte input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerThroughputBenchmark {
+
+    @Param({"case_1", "maxim_test_1"})
+    public String source;
+
+    @Param({"1", "10000"})
+    public int copies;
+
+    private final LexerOptions mappedOptions = new LexerOptions().setInputMode(LexerOptions.InputMode.MAPPED);
+    private File input;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var program = Files.readString(new File("src/test/resources/" + source + ".pd").toPath());
+        input = File.createTempFile(source + "_x" + copies, ".pd");
+        input.deleteOnExit();
+        Files.writeString(input.toPath(), program.repeat(copies));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        input.delete();
+    }
+
+    @Benchmark
+    public List<Token> charArray() throws IOException {
+        return LexicalAnalyzer.getInstance().tokenize(CharArraySourceReader.of(input));
+    }
+
+    @Benchmark
+    public List<Token> mapped() throws IOException {
+        return LexicalAnalyzer.getInstance().tokenize(input, mappedOptions);
+    }
+
+    @Benchmark
+    public List<Token> readerLoop() throws IOException {
+        try (var reader = new FileReader(input)) {
+            return LexicalAnalyzer.getInstance().tokenize(new StreamSourceReader(reader));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import com.compilingdogs.parser.ParserKt;
+import com.compilingdogs.parser.ParserOptions;
+import com.compilingdogs.parser.ast.FASTNode;
+import org.openjdk.jmh.annotations.*;
+import stages.CharArraySourceReader;
+import stages.LexicalAnalyzer;
+import tokens.Token;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse time with and without packrat memoization, see {@link ParserOptions#getMemoizing()}, on programs with deeply
+ * nested expressions and on ordinary ones. With the GC profiler, {@code gc.alloc.rate.norm} shows what the memo costs.
+ * <p>
+ * Without memoization every parenthesis multiplies the parse time by about ten, so deeper settings are best run with
+ * memoization only, e.g. {@code -p program=nested_64 -p memoizing=true}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemoizationBenchmark {
+
+    @Param({"nested_1", "nested_2", "case_0", "synthetic_100"})
+    public String program;
+
+    @Param({"true", "false"})
+    public boolean memoizing;
+
+    private List<Token> tokens;
+    private ParserOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tokens = LexicalAnalyzer.getInstance().tokenize(new CharArraySourceReader(BenchmarkPrograms.load(program)));
+        options = new ParserOptions();
+        options.setMemoizing(memoizing);
+        ParserKt.parse(tokens, options);
+    }
+
+    @Benchmark
+    public FASTNode parse() {
+        return ParserKt.parse(tokens, options);
+    }
+}
@@ -0,0 +1,41 @@
+package benchmarks;
+
+import com.compilingdogs.parser.ParserKt;
+import com.compilingdogs.parser.ast.FASTNode;
+import org.openjdk.jmh.annotations.*;
+import stages.CharArraySourceReader;
+import stages.LexicalAnalyzer;
+import tokens.Token;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parser stage alone: the program is tokenized once per trial and only {@code parse(tokens)} is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"case_0", "case_5", "case_11", "synthetic_10", "synthetic_100", "synthetic_1000"})
+    public String program;
+
+    private List<Token> tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tokens = LexicalAnalyzer.getInstance().tokenize(new CharArraySourceReader(BenchmarkPrograms.load(program)));
+        // The grammar is built on the first parse; keep that out of the measured calls.
+        ParserKt.parse(tokens);
+    }
+
+    @Benchmark
+    public FASTNode parse() {
+        return ParserKt.parse(tokens);
+    }
+}
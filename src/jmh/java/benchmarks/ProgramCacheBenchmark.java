@@ -0,0 +1,48 @@
+package benchmarks;
+
+import com.compilingdogs.parser.ParserKt;
+import com.compilingdogs.parser.ProgramCache;
+import com.compilingdogs.parser.ast.FASTNode;
+import org.openjdk.jmh.annotations.*;
+import stages.CharArraySourceReader;
+import stages.LexicalAnalyzer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to get the tree of a program seen before from a {@link ProgramCache}, which hashes the source and decodes
+ * the stored tree, against lexing and parsing it again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProgramCacheBenchmark {
+
+    @Param({"case_0", "case_5", "case_11", "synthetic_100", "synthetic_1000"})
+    public String program;
+
+    private String source;
+    private ProgramCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        source = BenchmarkPrograms.load(program);
+        cache = new ProgramCache();
+        // Builds the grammar and fills the cache, so that every measured get is a hit
+        cache.get(source);
+    }
+
+    @Benchmark
+    public FASTNode parse() throws IOException {
+        return ParserKt.parse(LexicalAnalyzer.getInstance().tokenize(new CharArraySourceReader(source)));
+    }
+
+    @Benchmark
+    public FASTNode cached() {
+        return cache.get(source);
+    }
+}
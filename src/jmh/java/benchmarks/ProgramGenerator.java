@@ -0,0 +1,387 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Generates syntactically valid programs of any size for load tests of the lexer, the parser and the interpreter.
+ * <p>
+ * A program declares a few variables and functions and then repeats statements drawn at random from declarations,
+ * assignments, {@code if}, {@code for} and {@code while} structures and function calls. Every construct is one the
+ * grammar in {@code Parser.kt} accepts and the interpreter runs without input, so a program runs to its end:
+ * loops are bounded, nothing is divided by a variable, and conditions only compare integers. Values stay small at
+ * any size, because arithmetic only reads the constant {@code a}, parameters and loop counters; variables declared by
+ * the program are only read by conditions.
+ * <p>
+ * The same options and seed always give the same program.
+ */
+public final class ProgramGenerator {
+    private static final String INDENT = "    ";
+    private static final String[] ADDITIVE_OPERATORS = {"+", "-"};
+    private static final String[] RELATIONS = {"<", "<=", ">", ">=", "=", "/="};
+    private static final String[] LOGICAL_OPERATORS = {"and", "or", "xor"};
+
+    private int statements = 100;
+    private long targetTokens = 0;
+    private int maxDepth = 2;
+    private int expressionOperators = 2;
+    private int groupingDepth = 0;
+    private int loopCount = 3;
+    private int functionCount = 0;
+    private long seed = 1;
+
+    // State of the program being generated.
+    private StringBuilder program;
+    private Random random;
+    private long tokenCount;
+    private int declaredCount;
+    private int loopVariableCount;
+    // Functions that may be called where the generator is; a function only calls the ones defined before it.
+    private int callableFunctions;
+
+    /**
+     * Number of top-level statements after the declarations. Ignored if a token target is set.
+     */
+    public ProgramGenerator setStatements(int statements) {
+        this.statements = statements;
+        return this;
+    }
+
+    /**
+     * Generates top-level statements until the program has at least this many tokens, line breaks included.
+     * The count goes past the target by at most one statement. Zero, the default, uses the statement count instead.
+     */
+    public ProgramGenerator setTargetTokens(long targetTokens) {
+        this.targetTokens = targetTokens;
+        return this;
+    }
+
+    /**
+     * Number of control structures that may be nested in each other. Zero gives a program of simple statements.
+     * The interpreter runs the innermost bodies up to {@code loopCount} to the power of this number of times.
+     */
+    public ProgramGenerator setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Largest number of binary operators in one expression; each expression gets between none and this many.
+     */
+    public ProgramGenerator setExpressionOperators(int expressionOperators) {
+        this.expressionOperators = expressionOperators;
+        return this;
+    }
+
+    /**
+     * Depth to which operands may be replaced with parenthesized expressions. Zero, the default, writes no
+     * parentheses; the parser currently backtracks through every grouping, so its time grows steeply with this.
+     */
+    public ProgramGenerator setGroupingDepth(int groupingDepth) {
+        this.groupingDepth = groupingDepth;
+        return this;
+    }
+
+    /**
+     * Number of iterations of every generated loop.
+     */
+    public ProgramGenerator setLoopCount(int loopCount) {
+        this.loopCount = loopCount;
+        return this;
+    }
+
+    /**
+     * Number of functions defined at the top of the program and called from its statements. None by default: the
+     * parser currently matches a call or a function literal once for every alternative of the enclosing expression,
+     * so a few functions dominate the parse time of programs of thousands of tokens.
+     */
+    public ProgramGenerator setFunctionCount(int functionCount) {
+        this.functionCount = functionCount;
+        return this;
+    }
+
+    public ProgramGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @return Source code of a program built from the current options.
+     */
+    public String generate() {
+        this.program = new StringBuilder();
+        this.random = new Random(this.seed);
+        this.tokenCount = 0;
+        this.declaredCount = 0;
+        this.loopVariableCount = 0;
+
+        this.line(0, "var", "a", ":=", "1");
+        this.line(0, "var", "b", ":=", "2.5");
+        this.line(0, "var", "s", ":=", "\"text\"");
+        for (int i = 0; i < this.functionCount; ++i) {
+            this.callableFunctions = i;
+            this.function(i);
+        }
+        this.callableFunctions = this.functionCount;
+
+        var scope = new Scope(null);
+        scope.sources.add("a");
+        if (this.targetTokens > 0) {
+            while (this.tokenCount < this.targetTokens) {
+                this.statement(0, scope);
+            }
+        } else {
+            for (int i = 0; i < this.statements; ++i) {
+                this.statement(0, scope);
+            }
+        }
+        var result = this.program.toString();
+        this.program = null;
+        return result;
+    }
+
+    // A function of two integers: one statement, then the return of an expression of its parameters.
+    private void function(int index) {
+        var scope = new Scope(null);
+        scope.sources.add("x");
+        scope.sources.add("y");
+        this.line(0, "var", "f" + index, ":=", "func", "(", "x", ",", "y", ")", "is");
+        this.statement(1, scope);
+        this.line(1, "return", this.integerExpression(scope, 0));
+        this.line(0, "end");
+    }
+
+    private void statement(int depth, Scope scope) {
+        int kinds = depth < this.maxDepth ? 7 : 4;
+        switch (this.random.nextInt(kinds)) {
+            case 0, 1 -> this.declaration(depth, scope);
+            case 2 -> this.assignment(depth, scope);
+            case 3 -> this.call(depth, scope);
+            case 4 -> this.ifStructure(depth, scope);
+            case 5 -> this.forStructure(depth, scope);
+            default -> this.whileStructure(depth, scope);
+        }
+    }
+
+    private void declaration(int depth, Scope scope) {
+        var name = "v" + this.declaredCount++;
+        if (this.random.nextInt(4) == 0) {
+            // Reals are never compared, the interpreter fails to compare them.
+            this.line(depth, "var", name, ":=", "b", "*", this.integerLiteral(), "+", this.product(scope, 0, 1));
+            scope.reals.add(name);
+        } else {
+            this.line(depth, "var", name, ":=", this.integerExpression(scope, 0));
+            scope.integers.add(name);
+        }
+    }
+
+    // Adds to a declared variable, so that a value grows at most linearly with the number of times this runs.
+    private void assignment(int depth, Scope scope) {
+        var target = scope.pick(this.random, s -> s.integers.size() + s.reals.size(), Scope::declared);
+        if (target == null) {
+            this.declaration(depth, scope);
+            return;
+        }
+        int operators = this.random.nextInt(this.expressionOperators + 1);
+        this.line(depth, target, ":=", target, "+", this.product(scope, 0, operators));
+    }
+
+    private void call(int depth, Scope scope) {
+        if (this.callableFunctions == 0) {
+            this.declaration(depth, scope);
+            return;
+        }
+        var name = "v" + this.declaredCount++;
+        this.line(
+                depth,
+                "var", name, ":=", "f" + this.random.nextInt(this.callableFunctions),
+                "(", this.integerExpression(scope, 0), ",", this.integerOperand(scope), ")"
+        );
+        scope.integers.add(name);
+    }
+
+    private void ifStructure(int depth, Scope scope) {
+        this.line(depth, "if", this.condition(scope), "then");
+        this.body(depth + 1, scope);
+        if (this.random.nextBoolean()) {
+            this.line(depth, "else");
+            this.body(depth + 1, scope);
+        }
+        this.line(depth, "end");
+    }
+
+    private void forStructure(int depth, Scope scope) {
+        var variable = "i" + this.loopVariableCount++;
+        this.line(depth, "for", variable, "in", "0", "..", Integer.toString(this.loopCount), "loop");
+        var inner = new Scope(scope);
+        inner.sources.add(variable);
+        this.body(depth + 1, inner);
+        this.line(depth, "end");
+    }
+
+    private void whileStructure(int depth, Scope scope) {
+        var counter = "w" + this.loopVariableCount++;
+        this.line(depth, "var", counter, ":=", "0");
+        this.line(depth, "while", counter, "<", Integer.toString(this.loopCount), "loop");
+        this.line(depth + 1, counter, ":=", counter, "+", "1");
+        var inner = new Scope(scope);
+        inner.sources.add(counter);
+        this.body(depth + 1, inner);
+        this.line(depth, "end");
+    }
+
+    // One to three statements; variables declared in a body are not visible after it.
+    private void body(int depth, Scope scope) {
+        var inner = new Scope(scope);
+        int count = 1 + this.random.nextInt(3);
+        for (int i = 0; i < count; ++i) {
+            this.statement(depth, inner);
+        }
+    }
+
+    private String condition(Scope scope) {
+        var condition = this.relation(scope);
+        if (this.expressionOperators > 0 && this.random.nextInt(3) == 0) {
+            condition += " " + LOGICAL_OPERATORS[this.random.nextInt(LOGICAL_OPERATORS.length)] + " "
+                    + this.relation(scope);
+        }
+        return condition;
+    }
+
+    private String relation(Scope scope) {
+        var left = this.random.nextBoolean()
+                ? scope.pick(this.random, s -> s.integers.size(), (s, i) -> s.integers.get(i))
+                : null;
+        return (left == null ? this.integerExpression(scope, 0) : left) + " "
+                + RELATIONS[this.random.nextInt(RELATIONS.length)] + " "
+                + this.integerLiteral();
+    }
+
+    /**
+     * An expression of at most {@code expressionOperators} operators: at most one {@code +} or {@code -} outside
+     * parentheses, with the other operators in the products on either side of it.
+     */
+    private String integerExpression(Scope scope, int grouping) {
+        int operators = this.random.nextInt(this.expressionOperators + 1);
+        if (operators == 0 || this.random.nextBoolean()) {
+            return this.product(scope, grouping, operators);
+        }
+        int left = this.random.nextInt(operators);
+        return this.product(scope, grouping, left) + " "
+                + ADDITIVE_OPERATORS[this.random.nextInt(ADDITIVE_OPERATORS.length)] + " "
+                + this.product(scope, grouping, operators - 1 - left);
+    }
+
+    // Products are read left to right, so the one division is kept last to divide by a literal rather than by a
+    // subexpression that may be zero.
+    private String product(Scope scope, int grouping, int operators) {
+        var product = new StringBuilder(this.integerTerm(scope, grouping));
+        for (int i = 0; i < operators; ++i) {
+            if (i == operators - 1 && this.random.nextInt(4) == 0) {
+                product.append(" / ").append(1 + this.random.nextInt(9));
+            } else {
+                product.append(" * ").append(this.integerTerm(scope, grouping));
+            }
+        }
+        return product.toString();
+    }
+
+    private String integerTerm(Scope scope, int grouping) {
+        if (grouping < this.groupingDepth && this.random.nextInt(3) == 0) {
+            return "(" + this.integerExpression(scope, grouping + 1) + ")";
+        }
+        return this.integerOperand(scope);
+    }
+
+    private String integerOperand(Scope scope) {
+        if (this.random.nextInt(3) == 0) {
+            return this.integerLiteral();
+        }
+        return scope.pick(this.random, s -> s.sources.size(), (s, i) -> s.sources.get(i));
+    }
+
+    private String integerLiteral() {
+        return Integer.toString(this.random.nextInt(100));
+    }
+
+    private void line(int depth, String... parts) {
+        for (int i = 0; i < depth; ++i) {
+            this.program.append(INDENT);
+        }
+        for (int i = 0; i < parts.length; ++i) {
+            if (i > 0) {
+                this.program.append(' ');
+            }
+            this.program.append(parts[i]);
+            this.tokenCount += countTokens(parts[i]);
+        }
+        this.program.append('\n');
+        ++this.tokenCount;
+    }
+
+    // Tokens are separated by spaces, except for parentheses and commas, which are always tokens of their own.
+    private static int countTokens(String text) {
+        int count = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (c == ' ') {
+                inWord = false;
+            } else if (c == '(' || c == ')' || c == ',') {
+                ++count;
+                inWord = false;
+            } else if (!inWord) {
+                ++count;
+                inWord = true;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Variables visible at some point of the program, by how they may be used.
+     */
+    private static final class Scope {
+        private final Scope parent;
+        // Integers that arithmetic may read: the constant, parameters and loop counters.
+        private final List<String> sources = new ArrayList<>();
+        // Declared integers, read by conditions only.
+        private final List<String> integers = new ArrayList<>();
+        private final List<String> reals = new ArrayList<>();
+
+        Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        /**
+         * Picks one of the variables selected in this scope and its parents, without copying them into one list.
+         *
+         * @return the variable, or null if there is none.
+         */
+        String pick(Random random, ToIntFunction<Scope> count, BiFunction<Scope, Integer, String> get) {
+            int total = 0;
+            for (var scope = this; scope != null; scope = scope.parent) {
+                total += count.applyAsInt(scope);
+            }
+            if (total == 0) {
+                return null;
+            }
+            int index = random.nextInt(total);
+            for (var scope = this; ; scope = scope.parent) {
+                int size = count.applyAsInt(scope);
+                if (index < size) {
+                    return get.apply(scope, index);
+                }
+                index -= size;
+            }
+        }
+
+        String declared(int index) {
+            int integerCount = this.integers.size();
+            return index < integerCount ? this.integers.get(index) : this.reals.get(index - integerCount);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package benchmarks;
+
+import com.compilingdogs.interpretation.Runtime;
+import com.compilingdogs.interpretation.value.Value;
+import com.compilingdogs.parser.ParserKt;
+import com.compilingdogs.parser.ast.FASTNode;
+import org.openjdk.jmh.annotations.*;
+import stages.CharArraySourceReader;
+import stages.LexicalAnalyzer;
+import tokens.Token;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of every stage against the size of a {@link ProgramGenerator} program, to find the stages that grow faster
+ * than their input. Each stage only sets up the stages before it, so e.g. the lexer can be run on sizes the parser
+ * cannot finish: {@code -p tokens=1000000,10000000 ScalingBenchmark.tokenize}.
+ * <p>
+ * Runs are single shots, since one call on the larger sizes takes seconds.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScalingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Source {
+        @Param({"1000", "2000", "4000", "8000"})
+        public long tokens;
+
+        private String program;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            program = BenchmarkPrograms.generated(tokens);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Tokens {
+        private List<Token> tokens;
+
+        @Setup(Level.Trial)
+        public void setUp(Source source) throws IOException {
+            tokens = LexicalAnalyzer.getInstance().tokenize(new CharArraySourceReader(source.program));
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Tree {
+        private FASTNode tree;
+
+        @Setup(Level.Trial)
+        public void setUp(Tokens tokens) {
+            tree = ParserKt.parse(tokens.tokens);
+        }
+    }
+
+    @Benchmark
+    public List<Token> tokenize(Source source) throws IOException {
+        return LexicalAnalyzer.getInstance().tokenize(new CharArraySourceReader(source.program));
+    }
+
+    @Benchmark
+    public FASTNode parse(Tokens tokens) {
+        return ParserKt.parse(tokens.tokens);
+    }
+
+    @Benchmark
+    public Value evaluate(Tree tree) {
+        return tree.tree.evaluate(new Runtime());
+    }
+}
@@ -0,0 +1,118 @@
+package benchmarks;
+
+import exception.LexicalAnalysisException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import stages.CharArraySourceReader;
+import stages.LexicalAnalyzer;
+import tokens.Identifier;
+import tokens.Keyword;
+import tokens.Literal;
+import tokens.Operator;
+import tokens.Separator;
+import tokens.Token;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Measures classification of scanned text on the {@code case_*.pd} corpus. {@code tokenize} is the current
+ * {@link Token#tokenize}, {@code legacyCascade} reproduces the former sequence of set lookups and regular expressions.
+ * {@code lexCorpus} lexes the whole corpus, where words are classified by the scanner state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenClassificationBenchmark {
+
+    private static final HashSet<String> separators = new HashSet<>(
+            Arrays.asList("(", ")", "[", "]", "{", "}", ";", ",", ".", " ", "\t", "\n", "\r")
+    );
+    private static final HashSet<String> operators = new HashSet<>(
+            Arrays.asList(
+                    ":=", "not", "or", "and", "xor", "is", "<", "<=", ">", ">=", "=", "/=", "+", "-", "*", "/", "=>", ".."
+            )
+    );
+    private static final HashSet<String> keywords = new HashSet<>(
+            Arrays.asList(
+                    "var", "true", "false", "is", "end", "if", "then", "else", "for", "while", "in", "loop", "print",
+                    "return", "int", "real", "bool", "string", "empty", "func", "readInt", "readReal", "readString"
+            )
+    );
+    private static final Pattern numericPattern = Pattern.compile("^[-+]?\\d*\\.?\\d*$");
+    private static final Pattern identifierPattern = Pattern.compile("^([a-zA-Z_][a-zA-Z\\d_]*)$");
+
+    private final List<String> lexemes = new ArrayList<>();
+    private final List<String> programs = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var sources = new File("src/test/resources").listFiles((dir, name) -> name.matches("case_\\d+\\.pd"));
+        for (File source : sources) {
+            try {
+                for (Token token : LexicalAnalyzer.getInstance().tokenize(source)) {
+                    lexemes.add(token.getToken());
+                }
+                programs.add(Files.readString(source.toPath()));
+            } catch (LexicalAnalysisException ignored) {
+            }
+        }
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole blackhole) {
+        for (String lexeme : lexemes) {
+            blackhole.consume(Token.tokenize(lexeme, 1, 1));
+        }
+    }
+
+    @Benchmark
+    public void legacyCascade(Blackhole blackhole) {
+        for (String lexeme : lexemes) {
+            blackhole.consume(legacyClassify(lexeme));
+        }
+    }
+
+    @Benchmark
+    public void lexCorpus(Blackhole blackhole) throws IOException {
+        for (String program : programs) {
+            blackhole.consume(LexicalAnalyzer.getInstance().tokenize(new CharArraySourceReader(program)));
+        }
+    }
+
+    private static Token legacyClassify(String lexeme) {
+        if (separators.contains(lexeme)) {
+            return Separator.getSeparator(lexeme, 1, 1);
+        } else if (operators.contains(lexeme)) {
+            return Operator.getOperator(lexeme, 1, 1);
+        } else if (keywords.contains(lexeme)) {
+            return Keyword.getKeyword(lexeme, 1, 1);
+        } else if (numericPattern.matcher(lexeme).matches() || isQuoted(lexeme) || lexeme.equals("empty")) {
+            if (isQuoted(lexeme)) {
+                return new Literal.StringLiteral(lexeme, 1, 1);
+            } else if (numericPattern.matcher(lexeme).matches() && !lexeme.contains(".")) {
+                return new Literal.IntegerLiteral(lexeme, 1, 1);
+            }
+            return new Literal.RealLiteral(lexeme, 1, 1);
+        } else if (!lexeme.isBlank() && identifierPattern.matcher(lexeme).matches()) {
+            return Identifier.getIdentifier(lexeme, 1, 1);
+        }
+        throw new LexicalAnalysisException(lexeme);
+    }
+
+    private static boolean isQuoted(String lexeme) {
+        var first = lexeme.charAt(0);
+        var last = lexeme.charAt(lexeme.length() - 1);
+        return (first == '"' && last == '"') || (first == '\'' && last == '\'');
+    }
+}
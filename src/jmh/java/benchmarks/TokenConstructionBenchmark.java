@@ -0,0 +1,68 @@
+package benchmarks;
+
+import exception.LexicalAnalysisException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import stages.LexicalAnalyzer;
+import tokens.Token;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Token#tokenize} per token. Run with the GC profiler and compare {@code gc.alloc.rate.norm}:
+ * {@code primitivePositions} is the current path, {@code boxedPositions} adds back the former per-token costs,
+ * boxed line and column beyond the {@code Integer} cache and the argument array of an unguarded {@code log.debug}.
+ * Positions start at line 1000, as in a large program.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenConstructionBenchmark {
+    private static final int LEXEMES = 4096;
+    private static final int FIRST_LINE = 1000;
+
+    private String[] lexemes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var corpus = new ArrayList<String>();
+        var sources = new File("src/test/resources").listFiles((dir, name) -> name.endsWith(".pd"));
+        for (File source : sources) {
+            try {
+                for (Token token : LexicalAnalyzer.getInstance().tokenize(source)) {
+                    corpus.add(token.getToken());
+                }
+            } catch (LexicalAnalysisException ignored) {
+            }
+        }
+        lexemes = new String[LEXEMES];
+        for (int i = 0; i < LEXEMES; ++i) {
+            lexemes[i] = corpus.get(i % corpus.size());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LEXEMES)
+    public void primitivePositions(Blackhole blackhole) {
+        for (int i = 0; i < LEXEMES; ++i) {
+            blackhole.consume(Token.tokenize(lexemes[i], FIRST_LINE + i, i & 63));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LEXEMES)
+    public void boxedPositions(Blackhole blackhole) {
+        for (int i = 0; i < LEXEMES; ++i) {
+            Integer line = FIRST_LINE + i;
+            Integer column = i & 63;
+            blackhole.consume(new Object[]{lexemes[i], line, column});
+            blackhole.consume(Token.tokenize(lexemes[i], line, column));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import exception.LexicalAnalysisException;
+import org.openjdk.jmh.annotations.*;
+import stages.CharArraySourceReader;
+import stages.LexicalAnalyzer;
+import stages.TokenBuffer;
+import tokens.Token;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the object-per-token {@code List<Token>} with the struct-of-arrays {@link TokenBuffer}
+ * over the lexically valid programs of the test corpus. With the GC profiler, {@code gc.alloc.rate.norm}
+ * shows the bytes allocated per run; {@code TokenBuffer#getFootprintBytes()} reports what the buffer retains.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenFootprintBenchmark {
+
+    @Param({"1", "100"})
+    public int copies;
+
+    private String corpus;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        var builder = new StringBuilder();
+        var sources = new File("src/test/resources").listFiles((dir, name) -> name.endsWith(".pd"));
+        for (File source : sources) {
+            try {
+                LexicalAnalyzer.getInstance().tokenize(source);
+            } catch (LexicalAnalysisException e) {
+                continue;
+            }
+            builder.append(Files.readString(source.toPath())).append('\n');
+        }
+        corpus = builder.toString().repeat(copies);
+    }
+
+    @Benchmark
+    public List<Token> tokenList() throws IOException {
+        return LexicalAnalyzer.getInstance().tokenize(new CharArraySourceReader(corpus));
+    }
+
+    @Benchmark
+    public TokenBuffer compactBuffer() throws IOException {
+        return LexicalAnalyzer.getInstance().tokenizeCompact(new CharArraySourceReader(corpus));
+    }
+}
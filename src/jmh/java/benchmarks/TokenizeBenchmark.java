@@ -0,0 +1,37 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import stages.CharArraySourceReader;
+import stages.LexicalAnalyzer;
+import tokens.Token;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexer stage alone: tokenizes an in-memory program, see {@link BenchmarkPrograms} for the program names.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizeBenchmark {
+
+    @Param({"case_0", "case_5", "case_11", "synthetic_10", "synthetic_100", "synthetic_1000"})
+    public String program;
+
+    private String source;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        source = BenchmarkPrograms.load(program);
+    }
+
+    @Benchmark
+    public List<Token> tokenize() throws IOException {
+        return LexicalAnalyzer.getInstance().tokenize(new CharArraySourceReader(source));
+    }
+}
@@ -0,0 +1,53 @@
+package stages;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+/**
+ * Source reader that keeps the whole program in a single {@code char[]} and walks it by index.
+ */
+public final class CharArraySourceReader implements SourceReader {
+    private final char[] chars;
+    private final int length;
+    private int position;
+
+    public CharArraySourceReader(char[] chars, int length) {
+        this.chars = chars;
+        this.length = length;
+    }
+
+    public CharArraySourceReader(String source) {
+        this(source.toCharArray(), source.length());
+    }
+
+    /**
+     * Loads the given file into memory, decoding it with the platform charset (same as {@link java.io.FileReader}).
+     *
+     * @param inputFile file containing source code
+     * @return reader positioned at the beginning of the file.
+     * @throws IOException if <b>input file</b> does not exist or cannot be read.
+     */
+    public static CharArraySourceReader of(File inputFile) throws IOException {
+        var bytes = Files.readAllBytes(inputFile.toPath());
+        CharBuffer decoded = Charset.defaultCharset().decode(ByteBuffer.wrap(bytes));
+        return new CharArraySourceReader(decoded.array(), decoded.limit());
+    }
+
+    char[] getChars() {
+        return this.chars;
+    }
+
+    @Override
+    public int read() {
+        return this.position < this.length ? this.chars[this.position++] : EOF;
+    }
+
+    @Override
+    public int peek() {
+        return this.position < this.length ? this.chars[this.position] : EOF;
+    }
+}
@@ -0,0 +1,45 @@
+package stages;
+
+/**
+ * Lexical error recorded by {@link LexicalAnalyzer#tokenizeRecovering} instead of being thrown.
+ */
+public final class Diagnostic {
+    private final int line;
+    private final int column;
+    private final int offset;
+    private final String message;
+
+    public Diagnostic(int line, int column, int offset, String message) {
+        this.line = line;
+        this.column = column;
+        this.offset = offset;
+        this.message = message;
+    }
+
+    public int getLine() {
+        return this.line;
+    }
+
+    public int getColumn() {
+        return this.column;
+    }
+
+    /**
+     * @return Index of the first offending character in the source, counted in UTF-16 units.
+     */
+    public int getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * @return Same message as the {@link exception.LexicalAnalysisException} thrown outside of recovering mode.
+     */
+    public String getMessage() {
+        return this.message;
+    }
+
+    @Override
+    public String toString() {
+        return this.line + ":" + this.column + " " + this.message;
+    }
+}
@@ -0,0 +1,118 @@
+package stages;
+
+/**
+ * Text kept in a {@code char[]} with a gap at the place of the last edit, for {@link IncrementalLexer}.
+ * <p>
+ * An edit moves the gap to its offset and fills it, so it costs the distance from the previous edit plus the inserted
+ * text instead of a copy of the whole text; typing at one place moves nothing. The array grows by doubling when the
+ * gap is too small for an insertion.
+ */
+final class GapBuffer {
+    private static final int MIN_GAP = 64;
+
+    private char[] chars;
+    // The gap is chars[gapStart, gapEnd); text offsets from gapStart on are stored after it.
+    private int gapStart;
+    private int gapEnd;
+
+    GapBuffer(String text) {
+        this.chars = new char[text.length() + MIN_GAP];
+        text.getChars(0, text.length(), this.chars, 0);
+        this.gapStart = text.length();
+        this.gapEnd = this.chars.length;
+    }
+
+    int length() {
+        return this.chars.length - (this.gapEnd - this.gapStart);
+    }
+
+    char charAt(int offset) {
+        return offset < this.gapStart ? this.chars[offset] : this.chars[offset + this.gapEnd - this.gapStart];
+    }
+
+    String substring(int from, int to) {
+        var text = new StringBuilder(to - from);
+        for (int i = from; i < to; ++i) {
+            text.append(this.charAt(i));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Replaces {@code removedLength} characters from {@code offset} on with {@code insertedText}.
+     * The gap is left right after the inserted text.
+     */
+    void replace(int offset, int removedLength, String insertedText) {
+        this.moveGap(offset);
+        this.gapEnd += removedLength;
+        if (insertedText.length() > this.gapEnd - this.gapStart) {
+            this.grow(insertedText.length());
+        }
+        insertedText.getChars(0, insertedText.length(), this.chars, this.gapStart);
+        this.gapStart += insertedText.length();
+    }
+
+    /**
+     * @param offset text offset to read from
+     * @return reader of the text from {@code offset} to the end; only valid until the next {@link #replace}.
+     */
+    SourceReader reader(int offset) {
+        return new Reader(offset < this.gapStart ? offset : offset + this.gapEnd - this.gapStart);
+    }
+
+    @Override
+    public String toString() {
+        return new String(this.chars, 0, this.gapStart)
+                + new String(this.chars, this.gapEnd, this.chars.length - this.gapEnd);
+    }
+
+    private void moveGap(int offset) {
+        if (offset < this.gapStart) {
+            int moved = this.gapStart - offset;
+            System.arraycopy(this.chars, offset, this.chars, this.gapEnd - moved, moved);
+            this.gapStart -= moved;
+            this.gapEnd -= moved;
+        } else if (offset > this.gapStart) {
+            int moved = offset - this.gapStart;
+            System.arraycopy(this.chars, this.gapEnd, this.chars, this.gapStart, moved);
+            this.gapStart += moved;
+            this.gapEnd += moved;
+        }
+    }
+
+    private void grow(int insertedLength) {
+        int tailLength = this.chars.length - this.gapEnd;
+        int capacity = Math.max(this.chars.length * 2, this.length() + insertedLength + MIN_GAP);
+        var grown = new char[capacity];
+        System.arraycopy(this.chars, 0, grown, 0, this.gapStart);
+        System.arraycopy(this.chars, this.gapEnd, grown, capacity - tailLength, tailLength);
+        this.chars = grown;
+        this.gapEnd = capacity - tailLength;
+    }
+
+    // Walks the array by index like CharArraySourceReader, stepping over the gap.
+    private final class Reader implements SourceReader {
+        private int position;
+
+        Reader(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public int read() {
+            int next = this.peek();
+            if (next != EOF) {
+                ++this.position;
+            }
+            return next;
+        }
+
+        @Override
+        public int peek() {
+            if (this.position == GapBuffer.this.gapStart) {
+                this.position = GapBuffer.this.gapEnd;
+            }
+            return this.position < GapBuffer.this.chars.length ? GapBuffer.this.chars[this.position] : EOF;
+        }
+    }
+}
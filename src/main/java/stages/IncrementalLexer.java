@@ -0,0 +1,292 @@
+package stages;
+
+import exception.LexicalAnalysisException;
+import org.slf4j.Logger;
+import tokens.Token;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the tokens of an edited source up to date without re-lexing the whole source on every change.
+ * <p>
+ * An edit is re-scanned from the start of a token shortly before it, where the {@link LexicalAnalyzer.State} machine
+ * is known to be {@code EMPTY}, until the scan reaches a token after the edit that starts at the same place and reads
+ * the same as before. From there on the old tokens stay valid; only their offsets and lines are shifted, and that
+ * shift is applied when the tokens are next read.
+ */
+public class IncrementalLexer {
+    // Tokens re-scanned before the edited one, so that e.g. "1." followed by an inserted digit becomes a real literal.
+    private static final int RESTART_LOOKBEHIND = 2;
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(IncrementalLexer.class);
+
+    private final ArrayList<Token> tokens;
+    private final GapBuffer source;
+    // Tokens from pendingFrom on still have to be moved by pendingOffset and pendingLines.
+    private int pendingFrom;
+    private int pendingOffset;
+    private int pendingLines;
+
+    public IncrementalLexer(String source) throws LexicalAnalysisException {
+        this.source = new GapBuffer(source);
+        try {
+            this.tokens = new ArrayList<>(new LexerContext(this.source.reader(0)).tokenize());
+        } catch (IOException e) {
+            throw new IllegalStateException("In-memory source cannot fail to read.", e);
+        }
+        this.pendingFrom = this.tokens.size();
+    }
+
+    /**
+     * Loads the given file, decoding it with the platform charset, and tokenizes it.
+     *
+     * @param inputFile file containing source code
+     * @return lexer holding the file's tokens.
+     * @throws IOException              if <b>input file</b> does not exist.
+     * @throws LexicalAnalysisException if <b>input file</b> contains lexically incorrect program.
+     */
+    public static IncrementalLexer of(File inputFile) throws IOException, LexicalAnalysisException {
+        return new IncrementalLexer(new String(Files.readAllBytes(inputFile.toPath()), Charset.defaultCharset()));
+    }
+
+    /**
+     * @return Current source text.
+     */
+    public String getSource() {
+        return this.source.toString();
+    }
+
+    /**
+     * @return Tokens of the current source, with all positions up to date.
+     */
+    public List<Token> getTokens() {
+        this.applyPendingShift();
+        return Collections.unmodifiableList(this.tokens);
+    }
+
+    /**
+     * Replaces a range of the source and updates the tokens.
+     * If the edited source is lexically incorrect, the exception is thrown and the lexer keeps the previous source.
+     *
+     * @param offset        offset of the first replaced character
+     * @param removedLength number of replaced characters
+     * @param insertedText  replacement text
+     * @return Which tokens were replaced and how many were scanned.
+     * @throws LexicalAnalysisException if the edited source contains lexically incorrect program.
+     */
+    public EditResult edit(int offset, int removedLength, String insertedText) throws LexicalAnalysisException {
+        if (offset < 0 || removedLength < 0 || offset + removedLength > this.source.length()) {
+            throw new IndexOutOfBoundsException(
+                    "Edit [" + offset + ", " + (offset + removedLength) + ") is outside of source of length "
+                            + this.source.length()
+            );
+        }
+        int delta = insertedText.length() - removedLength;
+        int removedEnd = offset + removedLength;
+        int insertedEnd = offset + insertedText.length();
+
+        int restart = this.restartIndex(offset);
+        int first = Math.max(restart, 0);
+        int restartOffset = 0;
+        int restartLine = 1;
+        int restartColumn = 1;
+        if (restart >= 0) {
+            restartOffset = this.offsetOf(restart);
+            restartLine = this.lineOf(restart);
+            restartColumn = this.tokens.get(restart).getColumn();
+        }
+
+        var removedText = this.source.substring(offset, removedEnd);
+        this.source.replace(offset, removedLength, insertedText);
+        var context = new LexerContext(this.source.reader(restartOffset), restartLine, restartColumn, restartOffset);
+
+        // Scan until a new token lines up with an old token that follows the edit.
+        var scanned = new ArrayList<Token>();
+        int resync = this.tokens.size();
+        int candidate = first;
+        Token token;
+        try {
+            while ((token = context.nextToken()) != null) {
+                if (token.getOffset() >= insertedEnd) {
+                    while (candidate < this.tokens.size() && (this.offsetOf(candidate) < removedEnd
+                            || this.offsetOf(candidate) + delta < token.getOffset())) {
+                        ++candidate;
+                    }
+                    if (candidate < this.tokens.size() && this.isSameToken(candidate, token, delta)) {
+                        resync = candidate;
+                        this.shiftFrom(candidate, token);
+                        break;
+                    }
+                }
+                scanned.add(token);
+            }
+        } catch (RuntimeException e) {
+            // Also covers literals out of range, which surface as NumberFormatException
+            this.source.replace(offset, insertedText.length(), removedText);
+            throw e;
+        } catch (IOException e) {
+            throw new IllegalStateException("In-memory source cannot fail to read.", e);
+        }
+
+        if (resync == this.tokens.size()) {
+            this.applyPendingShift();
+        }
+        this.splice(first, resync, scanned);
+
+        log.debug("Edit at {} re-scanned {} tokens, replacing {}.", offset, scanned.size(), resync - first);
+        return new EditResult(first, resync - first, scanned.size(), restartOffset);
+    }
+
+    /**
+     * Finds the token to re-scan from: {@value #RESTART_LOOKBEHIND} tokens before the first token that reaches the edit.
+     *
+     * @return index of that token, or a negative number if the scan has to start from the beginning of the source.
+     */
+    private int restartIndex(int editOffset) {
+        int low = 0;
+        int high = this.tokens.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.offsetOf(middle) + this.tokens.get(middle).getToken().length() < editOffset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - RESTART_LOOKBEHIND;
+    }
+
+    private boolean isSameToken(int index, Token scanned, int delta) {
+        var old = this.tokens.get(index);
+        return this.offsetOf(index) + delta == scanned.getOffset()
+                && old.getKind() == scanned.getKind()
+                && old.getToken().equals(scanned.getToken());
+    }
+
+    /**
+     * Records the shift of the tokens from {@code index} on, given the re-scanned copy of the token at {@code index}.
+     * Columns only change on the line the edit ends on, so they are fixed right away; offsets and lines are deferred.
+     */
+    private void shiftFrom(int index, Token rescanned) {
+        int offsetDelta = rescanned.getOffset() - this.offsetOf(index);
+        int lineDelta = rescanned.getLine() - this.lineOf(index);
+        if (rescanned.getColumn() != this.tokens.get(index).getColumn()) {
+            // A tab after the edit may absorb the shift, so the columns are counted again up to the end of the line
+            int editLine = this.lineOf(index);
+            int column = rescanned.getColumn();
+            int position = rescanned.getOffset();
+            for (int i = index; i < this.tokens.size() && this.lineOf(i) == editLine; ++i) {
+                int offset = this.offsetOf(i) + offsetDelta;
+                for (; position < offset; ++position) {
+                    column = this.source.charAt(position) == '\t'
+                            ? column + LineIndex.TAB_WIDTH - (column - 1) % LineIndex.TAB_WIDTH
+                            : column + 1;
+                }
+                this.tokens.get(i).setColumn(column);
+            }
+        }
+
+        // Only one shift is kept pending, so either the tokens between it and this one are moved now, or, when there
+        // are fewer of them, the tokens after the pending shift are settled and the shift starts here instead.
+        if (this.pendingFrom < index) {
+            this.shift(this.pendingFrom, index, this.pendingOffset, this.pendingLines);
+            this.pendingFrom = index;
+        } else if (this.pendingFrom - index > this.tokens.size() - this.pendingFrom) {
+            this.applyPendingShift();
+            this.pendingFrom = index;
+        } else {
+            this.shift(index, this.pendingFrom, offsetDelta, lineDelta);
+        }
+        this.pendingOffset += offsetDelta;
+        this.pendingLines += lineDelta;
+    }
+
+    private void splice(int from, int to, List<Token> replacement) {
+        // Tokens are overwritten in place, so the tail of the list only moves when the token count changes
+        int common = Math.min(to - from, replacement.size());
+        for (int i = 0; i < common; ++i) {
+            this.tokens.set(from + i, replacement.get(i));
+        }
+        if (common < replacement.size()) {
+            this.tokens.addAll(from + common, replacement.subList(common, replacement.size()));
+        } else if (from + common < to) {
+            this.tokens.subList(from + common, to).clear();
+        }
+        this.pendingFrom += replacement.size() - (to - from);
+    }
+
+    private void shift(int from, int to, int offsetDelta, int lineDelta) {
+        for (int i = from; i < to; ++i) {
+            var token = this.tokens.get(i);
+            token.setOffset(token.getOffset() + offsetDelta);
+            token.setLine(token.getLine() + lineDelta);
+        }
+    }
+
+    private void applyPendingShift() {
+        this.shift(this.pendingFrom, this.tokens.size(), this.pendingOffset, this.pendingLines);
+        this.pendingFrom = this.tokens.size();
+        this.pendingOffset = 0;
+        this.pendingLines = 0;
+    }
+
+    private int offsetOf(int index) {
+        var offset = this.tokens.get(index).getOffset();
+        return index >= this.pendingFrom ? offset + this.pendingOffset : offset;
+    }
+
+    private int lineOf(int index) {
+        var line = this.tokens.get(index).getLine();
+        return index >= this.pendingFrom ? line + this.pendingLines : line;
+    }
+
+    /**
+     * Outcome of a single {@link #edit}.
+     */
+    public static class EditResult {
+        private final int firstIndex;
+        private final int replacedCount;
+        private final int rescannedCount;
+        private final int restartOffset;
+
+        EditResult(int firstIndex, int replacedCount, int rescannedCount, int restartOffset) {
+            this.firstIndex = firstIndex;
+            this.replacedCount = replacedCount;
+            this.rescannedCount = rescannedCount;
+            this.restartOffset = restartOffset;
+        }
+
+        /**
+         * @return Index of the first token that was re-scanned.
+         */
+        public int getFirstIndex() {
+            return this.firstIndex;
+        }
+
+        /**
+         * @return Number of old tokens that were replaced.
+         */
+        public int getReplacedCount() {
+            return this.replacedCount;
+        }
+
+        /**
+         * @return Number of tokens produced by re-scanning.
+         */
+        public int getRescannedCount() {
+            return this.rescannedCount;
+        }
+
+        /**
+         * @return Source offset the scan restarted from.
+         */
+        public int getRestartOffset() {
+            return this.restartOffset;
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package stages;
+
+import exception.LexicalAnalysisException;
+import stages.LexicalAnalyzer.State;
+import tokens.ErrorToken;
+import tokens.Identifier;
+import tokens.Literal;
+import tokens.Separator;
+import tokens.Token;
+import tokens.TokenKind;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+import static stages.LexicalAnalyzer.State.*;
+import static stages.LexicalAnalyzer.isBracketTokenChar;
+import static stages.LexicalAnalyzer.isPersistentSeparatorChar;
+import static stages.LexicalAnalyzer.isSeparatorTokenChar;
+import static tokens.Literal.isAsciiDigit;
+import static tokens.Literal.isDigits;
+import static tokens.Literal.isRealLiteral;
+
+/**
+ * Mutable state of a single {@link LexicalAnalyzer} run over one source.
+ * A new context is created for every invocation, so separate sources can be tokenized concurrently.
+ * Tokens are produced on demand by {@link #nextToken()}, so the source does not have to be scanned up front.
+ */
+final class LexerContext {
+    // Line and column of a token created before they are looked up
+    private static final int UNRESOLVED = 0;
+
+    private final SourceReader reader;
+    private final StringBuilder buffer;
+    private final ArrayDeque<Token> tokens;
+    private final LineIndex lines;
+    private int offset;
+    private int bufferOffset;
+    private State currState;
+    private boolean finished;
+    private final boolean coalesceNewLines;
+    // Errors are recorded here and scanning goes on; null when the first error is thrown.
+    private final List<Diagnostic> diagnostics;
+
+    LexerContext(SourceReader reader) {
+        this(reader, new LexerOptions());
+    }
+
+    LexerContext(SourceReader reader, LexerOptions options) {
+        this(reader, 1, 1, 0, options.isCoalescingNewLines(), null);
+    }
+
+    /**
+     * Creates a context that does not stop at lexical errors. Each error is added to the given list and
+     * replaced by an {@link ErrorToken}, and scanning resumes at the next separator.
+     *
+     * @param reader      reader positioned at the beginning of the source code
+     * @param options     options selecting how the source is scanned
+     * @param diagnostics list receiving the errors
+     */
+    LexerContext(SourceReader reader, LexerOptions options, List<Diagnostic> diagnostics) {
+        this(reader, 1, 1, 0, options.isCoalescingNewLines(), diagnostics);
+    }
+
+    /**
+     * Creates a context that starts in the middle of a source, at the first character of a token.
+     * The state machine starts {@link State#EMPTY}, which is the state the lexer is in at any token start.
+     *
+     * @param reader reader positioned at the token
+     * @param line   line of the token
+     * @param column column of the token
+     * @param offset offset of the token in the whole source
+     */
+    LexerContext(SourceReader reader, int line, int column, int offset) {
+        this(reader, line, column, offset, false, null);
+    }
+
+    private LexerContext(
+            SourceReader reader,
+            int line,
+            int column,
+            int offset,
+            boolean coalesceNewLines,
+            List<Diagnostic> diagnostics
+    ) {
+        this.reader = reader;
+        this.buffer = new StringBuilder();
+        this.tokens = new ArrayDeque<>();
+        this.currState = EMPTY;
+        this.lines = new LineIndex(line, offset - (column - 1));
+        this.offset = offset;
+        this.bufferOffset = offset;
+        this.finished = false;
+        this.coalesceNewLines = coalesceNewLines;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * @return Line starts of the part of the source scanned so far.
+     */
+    LineIndex getLineIndex() {
+        return this.lines;
+    }
+
+    List<Token> tokenize() throws IOException, LexicalAnalysisException {
+        var result = new ArrayList<Token>();
+        Token token;
+        while ((token = this.nextToken()) != null) {
+            result.add(token);
+        }
+        return result;
+    }
+
+    /**
+     * Scans the source until the next token can no longer change.
+     *
+     * @return next token, or {@code null} if the source is exhausted.
+     */
+    Token nextToken() throws IOException, LexicalAnalysisException {
+        while (!this.hasCompleteToken() && !this.finished) {
+            int curr = this.read();
+            if (curr == SourceReader.EOF) {
+                this.commitBufferedToken();
+                this.finished = true;
+            } else {
+                this.scan((char) curr);
+            }
+        }
+        return this.tokens.pollFirst();
+    }
+
+    // A new line can still absorb the following ones while it is the only token waiting.
+    private boolean hasCompleteToken() {
+        if (this.tokens.isEmpty()) {
+            return false;
+        }
+        return !this.coalesceNewLines || this.tokens.size() > 1
+                || !(this.tokens.peekFirst() instanceof Separator.NewLineSeparator);
+    }
+
+    private void scan(char currChar) throws IOException {
+        if (isBracketTokenChar(currChar)) {
+            readBracket(currChar);
+        } else if (isOneLineComment(currChar)) {
+            skipOneLineComment();
+        } else if (isMultiLineComment(currChar)) {
+            skipMultiLineComment();
+        } else if (isStringLiteral(currChar)) {
+            readStringLiteral(currChar);
+        } else if (isDecimalPoint(currChar)) {
+            this.appendToBuffer(currChar);
+        } else {
+            var newState = getState(currChar);
+            if (newState == currState && newState != READ_SEP) {
+                this.appendToBuffer(currChar);
+            } else {
+                this.commitBufferedToken();
+                currState = newState;
+                if (
+                        newState == READ_ALPHA ||
+                                newState == READ_OP ||
+                                isPersistentSeparatorChar(currChar)
+                ) {
+                    this.appendToBuffer(currChar);
+                } else if (newState == EMPTY) {
+                    var message = format(
+                            "Error in lexical analysis at line - %d, column - %d. Unrecognized Character: \"%s\".",
+                            this.lines.getLine(this.offset - 1),
+                            this.lines.getColumn(this.offset - 1),
+                            currChar
+                    );
+                    if (this.diagnostics == null) {
+                        throw new LexicalAnalysisException(message);
+                    }
+                    this.skipUnrecognized(currChar, message);
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean isStringLiteral(char currChar) {
+        return currChar == '\"' || currChar == '\'';
+    }
+
+    // A period continues an integer into a real literal only when a digit follows, so "1..10" stays a range.
+    private boolean isDecimalPoint(char currChar) throws IOException {
+        if (currChar != '.' || this.currState != READ_ALPHA || this.buffer.length() == 0) {
+            return false;
+        }
+        int next = this.reader.peek();
+        return next != SourceReader.EOF && isAsciiDigit((char) next) && isDigits(this.buffer);
+    }
+
+    private boolean isMultiLineComment(char currChar) {
+        return currChar == '*' && this.buffer.length() == 1 && this.buffer.charAt(0) == '/';
+    }
+
+    private boolean isOneLineComment(char currChar) {
+        return currChar == '/' && this.buffer.length() == 1 && this.buffer.charAt(0) == '/';
+    }
+
+    private void readStringLiteral(char startingQuote) throws IOException {
+        int startingLine = this.lines.getLine(this.offset - 1);
+        int startingColumn = this.lines.getColumn(this.offset - 1);
+        this.commitBufferedToken();
+        this.appendToBuffer(startingQuote);
+
+        char curr;
+        char prev = ' ';
+        while (((curr = (char) this.read()) != startingQuote) || (prev == '\\')) {
+            if (curr == '\n' || this.reader.peek() == SourceReader.EOF) {
+                var message = format(
+                        "Error in lexical analysis at line - %d, column - %d. Unacceptable literal: \"%s\".",
+                        startingLine,
+                        startingColumn,
+                        buffer.toString()
+                );
+                if (this.diagnostics == null) {
+                    throw new LexicalAnalysisException(message);
+                }
+                this.recoverUnterminatedString(startingLine, startingColumn, curr, message);
+                return;
+            }
+            this.buffer.append(curr);
+            prev = curr;
+        }
+
+        this.buffer.append(curr);
+        this.commitToken(new Literal.StringLiteral(this.buffer.toString(), UNRESOLVED, UNRESOLVED), this.bufferOffset);
+        this.cleanBuffer();
+    }
+
+    private void skipMultiLineComment() throws IOException {
+        this.cleanBuffer();
+
+        int currC;
+        int prevC = ' ';
+        while (!((currC = this.read()) == '/' && prevC == '*')) {
+            if (currC == SourceReader.EOF) {
+                return;
+            }
+            prevC = currC;
+        }
+    }
+
+    private void skipOneLineComment() throws IOException {
+        int currC;
+        //noinspection StatementWithEmptyBody
+        while ((currC = this.read()) != '\n' && currC != SourceReader.EOF) { }
+        this.cleanBuffer();
+    }
+
+    private void readBracket(char currChar) {
+        this.commitBufferedToken();
+        var kind = TokenKind.forFixedText(currChar);
+        this.commitToken(kind, this.offset - 1);
+        this.currState = EMPTY;
+    }
+
+    private void commitBufferedToken() {
+        if (this.buffer.length() == 0) {
+            return;
+        }
+
+        var fixedKind = TokenKind.forFixedText(this.buffer);
+        if (fixedKind != null) {
+            commitToken(fixedKind, this.bufferOffset);
+            cleanBuffer();
+            return;
+        }
+
+        var text = this.buffer.toString();
+        try {
+            commitToken(text, this.bufferOffset);
+        } catch (LexicalAnalysisException | NumberFormatException e) {
+            if (this.diagnostics == null) {
+                throw e;
+            }
+            int line = this.lines.getLine(this.bufferOffset);
+            int column = this.lines.getColumn(this.bufferOffset);
+            var message = e instanceof LexicalAnalysisException ? e.getMessage() : format(
+                    "Error in lexical analysis at line - %d, column - %d. Unacceptable literal: \"%s\".",
+                    line,
+                    column,
+                    text
+            );
+            this.commitError(text, line, column, this.bufferOffset, message);
+        }
+        cleanBuffer();
+    }
+
+    // Reads the rest of the unrecognized text up to the next separator into one error token.
+    private void skipUnrecognized(char currChar, String message) throws IOException {
+        int startOffset = this.offset - 1;
+        int startLine = this.lines.getLine(startOffset);
+        int startColumn = this.lines.getColumn(startOffset);
+        var text = new StringBuilder().append(currChar);
+        int next;
+        while ((next = this.reader.peek()) != SourceReader.EOF && !this.isResynchronizationChar((char) next)) {
+            this.read();
+            text.append((char) next);
+        }
+        this.commitError(text.toString(), startLine, startColumn, startOffset, message);
+        this.currState = EMPTY;
+    }
+
+    private boolean isResynchronizationChar(char curr) {
+        return isSeparatorTokenChar(curr) || isBracketTokenChar(curr) || this.isStringLiteral(curr);
+    }
+
+    // The string ends at the line break or at the end of the source; the line break itself is scanned as usual.
+    private void recoverUnterminatedString(int startLine, int startColumn, char curr, String message) throws IOException {
+        boolean lineBreak = curr == '\n';
+        if (!lineBreak && curr != (char) SourceReader.EOF) {
+            this.buffer.append(curr);
+        }
+        this.commitError(this.buffer.toString(), startLine, startColumn, this.bufferOffset, message);
+        this.cleanBuffer();
+        this.currState = EMPTY;
+        if (lineBreak) {
+            this.scan(curr);
+        }
+    }
+
+    private void commitError(String text, int line, int column, int offset, String message) {
+        this.diagnostics.add(new Diagnostic(line, column, offset, message));
+        this.commitToken(new ErrorToken(text, line, column), offset);
+    }
+
+    private void commitToken(String token, int offset) {
+        Token created;
+        try {
+            created = this.createToken(token, UNRESOLVED, UNRESOLVED);
+        } catch (LexicalAnalysisException e) {
+            // Only a token that cannot be created needs its position right away, for the error message
+            created = this.createToken(token, this.lines.getLine(offset), this.lines.getColumn(offset));
+        }
+        this.commitToken(created, offset);
+    }
+
+    private Token createToken(String token, int line, int column) {
+        // A word is a keyword (handled by the caller), a number or an identifier; other text takes the general path.
+        if (this.currState == READ_ALPHA) {
+            if (isDigits(token)) {
+                return new Literal.IntegerLiteral(token, line, column);
+            } else if (isAsciiDigit(token.charAt(0)) && isRealLiteral(token)) {
+                return new Literal.RealLiteral(token, line, column);
+            } else {
+                return Identifier.getIdentifier(token, line, column);
+            }
+        }
+        return Token.tokenize(token, line, column);
+    }
+
+    private void commitToken(TokenKind kind, int offset) {
+        this.commitToken(kind.create(UNRESOLVED, UNRESOLVED), offset);
+    }
+
+    // Tokens are placed at the offset of their first character and look up their line and column when asked.
+    private void commitToken(Token token, int offset) {
+        if (this.coalesceNewLines && token instanceof Separator.NewLineSeparator
+                && this.tokens.peekLast() instanceof Separator.NewLineSeparator) {
+            var run = (Separator.NewLineSeparator) this.tokens.peekLast();
+            run.setEndLine(this.lines.getLine(offset) + 1);
+            return;
+        }
+        token.setOffset(offset, this.lines);
+        this.tokens.add(token);
+    }
+
+    private int read() throws IOException {
+        int curr = this.reader.read();
+        if (curr != SourceReader.EOF) {
+            ++this.offset;
+            if (curr <= '\n') {
+                this.recordLayout(curr);
+            }
+        }
+        return curr;
+    }
+
+    private void recordLayout(int curr) {
+        if (curr == '\n') {
+            this.lines.addLineStart(this.offset);
+        } else if (curr == '\t') {
+            this.lines.addTab(this.offset - 1);
+        }
+    }
+
+    private void appendToBuffer(char curr) {
+        if (this.buffer.length() == 0) {
+            this.bufferOffset = this.offset - 1;
+        }
+        this.buffer.append(curr);
+    }
+
+    private void cleanBuffer() {
+        this.buffer.setLength(0);
+    }
+}
@@ -0,0 +1,43 @@
+package stages;
+
+/**
+ * Options controlling how {@link LexicalAnalyzer} reads and scans a source file.
+ */
+public class LexerOptions {
+    private InputMode inputMode = InputMode.IN_MEMORY;
+    private boolean coalescingNewLines = false;
+
+    public InputMode getInputMode() {
+        return this.inputMode;
+    }
+
+    public LexerOptions setInputMode(InputMode inputMode) {
+        this.inputMode = inputMode;
+        return this;
+    }
+
+    public boolean isCoalescingNewLines() {
+        return this.coalescingNewLines;
+    }
+
+    /**
+     * Collapses every run of line breaks, including blank and comment-only lines, into one
+     * {@link tokens.Separator.NewLineSeparator} that records how many lines it spans.
+     * Off by default, so that every line break keeps its own token.
+     */
+    public LexerOptions setCoalescingNewLines(boolean coalescingNewLines) {
+        this.coalescingNewLines = coalescingNewLines;
+        return this;
+    }
+
+    public enum InputMode {
+        /**
+         * Whole file is decoded with the platform charset into a {@code char[]} before scanning.
+         */
+        IN_MEMORY,
+        /**
+         * File is memory-mapped and decoded as UTF-8 while scanning, without a heap copy of the source.
+         */
+        MAPPED
+    }
+}
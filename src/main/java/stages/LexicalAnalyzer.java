@@ -5,8 +5,6 @@ import org.slf4j.Logger;
 import tokens.Token;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -15,10 +13,7 @@ import java.util.List;
 
 import static java.lang.Character.isDigit;
 import static java.lang.Character.isLetter;
-import static java.lang.String.format;
-import static java.util.Objects.isNull;
 import static stages.LexicalAnalyzer.State.*;
-import static tokens.Literal.isRealLiteral;
 import static tokens.Operator.*;
 import static tokens.Separator.*;
 
@@ -57,35 +52,77 @@ public class LexicalAnalyzer {
                     WINDOWS_NEW_LINE_SEPARATOR_TOKEN
             )
     );
+    private static final int BRACKET_CHAR = 1;
+    private static final int OPERATOR_CHAR = 1 << 1;
+    private static final int SEPARATOR_CHAR = 1 << 2;
+    private static final int PERSISTENT_SEPARATOR_CHAR = 1 << 3;
+    private static final int ALPHA_CHAR = 1 << 4;
+    // Classes of ASCII characters, precomputed from the sets above so that scanning does not allocate.
+    private static final byte[] asciiCharClasses = buildAsciiCharClasses();
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(LexicalAnalyzer.class);
 
-    private static LexicalAnalyzer instance;
-    private StringBuilder buffer;
-    private List<Token> tokens;
-    private int line;
-    private int column;
-    private State currState;
-    private FileReader reader;
+    private static final LexicalAnalyzer instance = new LexicalAnalyzer();
 
     private LexicalAnalyzer() {}
 
+    /**
+     * Returns the shared analyzer. It keeps no state between calls: every call to {@code tokenize}
+     * scans in its own {@link LexerContext}, so the instance can be used from several threads at once.
+     */
     public static LexicalAnalyzer getInstance() {
-        if (isNull(instance)) {
-            instance = new LexicalAnalyzer();
-        }
         return instance;
     }
 
-    private static Boolean isBracketTokenChar(Character curChar) {
-        return bracketTokenChars.contains(String.valueOf(curChar));
+    private static byte[] buildAsciiCharClasses() {
+        var classes = new byte[128];
+        for (char c = 0; c < classes.length; ++c) {
+            var charString = String.valueOf(c);
+            int charClass = 0;
+            if (bracketTokenChars.contains(charString)) {
+                charClass |= BRACKET_CHAR;
+            }
+            if (operatorTokenChars.contains(charString)) {
+                charClass |= OPERATOR_CHAR;
+            }
+            if (separatorTokenChars.contains(charString)) {
+                charClass |= SEPARATOR_CHAR;
+            }
+            if (isPersistentSeparator(charString)) {
+                charClass |= PERSISTENT_SEPARATOR_CHAR;
+            }
+            if (isLetter(c) || isDigit(c) || c == '_') {
+                charClass |= ALPHA_CHAR;
+            }
+            classes[c] = (byte) charClass;
+        }
+        return classes;
+    }
+
+    private static int charClass(char curChar) {
+        if (curChar < asciiCharClasses.length) {
+            return asciiCharClasses[curChar];
+        }
+        return isLetter(curChar) || isDigit(curChar) ? ALPHA_CHAR : 0;
+    }
+
+    static boolean isBracketTokenChar(char curChar) {
+        return (charClass(curChar) & BRACKET_CHAR) != 0;
+    }
+
+    static boolean isOperatorTokenChar(char curChar) {
+        return (charClass(curChar) & OPERATOR_CHAR) != 0;
     }
 
-    private static Boolean isOperatorTokenChar(Character curChar) {
-        return operatorTokenChars.contains(String.valueOf(curChar));
+    static boolean isSeparatorTokenChar(char curChar) {
+        return (charClass(curChar) & SEPARATOR_CHAR) != 0;
     }
 
-    private static Boolean isSeparatorTokenChar(Character curChar) {
-        return separatorTokenChars.contains(String.valueOf(curChar));
+    static boolean isPersistentSeparatorChar(char curChar) {
+        return (charClass(curChar) & PERSISTENT_SEPARATOR_CHAR) != 0;
+    }
+
+    static boolean isAlphaTokenChar(char curChar) {
+        return (charClass(curChar) & ALPHA_CHAR) != 0;
     }
 
     /**
@@ -97,49 +134,56 @@ public class LexicalAnalyzer {
      * @throws LexicalAnalysisException if <b>input file</b> contains lexically incorrect program.
      */
     public List<Token> tokenize(File inputFile) throws IOException, LexicalAnalysisException {
+        return this.tokenize(inputFile, new LexerOptions());
+    }
+
+    /**
+     * Function, that scans given input file using given options and returns list of tokens
+     *
+     * @param inputFile file containing source code
+     * @param options   options selecting how the file is read
+     * @return List of tokens
+     * @throws IOException              if <b>input file</b> does not exist.
+     * @throws LexicalAnalysisException if <b>input file</b> contains lexically incorrect program.
+     */
+    public List<Token> tokenize(File inputFile, LexerOptions options) throws IOException, LexicalAnalysisException {
         log.info("Initializing Lexical Analyzer for Parsing {}.", inputFile.getAbsolutePath());
-        this.initialize(inputFile);
+        return switch (options.getInputMode()) {
+            case IN_MEMORY -> this.tokenize(CharArraySourceReader.of(inputFile), options);
+            case MAPPED -> {
+                try (var source = MappedSourceReader.of(inputFile)) {
+                    yield this.tokenize(source, options);
+                }
+            }
+        };
+    }
+
+    /**
+     * Function, that scans given source and returns list of tokens
+     *
+     * @param source reader positioned at the beginning of the source code
+     * @return List of tokens
+     * @throws IOException              if <b>source</b> cannot be read.
+     * @throws LexicalAnalysisException if <b>source</b> contains lexically incorrect program.
+     */
+    public List<Token> tokenize(SourceReader source) throws IOException, LexicalAnalysisException {
+        return this.tokenize(source, new LexerOptions());
+    }
+
+    /**
+     * Function, that scans given source using given options and returns list of tokens
+     *
+     * @param source  reader positioned at the beginning of the source code
+     * @param options options selecting how the source is scanned
+     * @return List of tokens
+     * @throws IOException              if <b>source</b> cannot be read.
+     * @throws LexicalAnalysisException if <b>source</b> contains lexically incorrect program.
+     */
+    public List<Token> tokenize(SourceReader source, LexerOptions options) throws IOException, LexicalAnalysisException {
         log.info("Lexical Analyzer initialized correctly. Starting parsing phase.");
         long startTime = System.nanoTime();
 
-        int curr;
-        while ((curr = this.reader.read()) != -1) {
-            var currChar = (char) curr;
-            if (isBracketTokenChar(currChar)) {
-                readBracket(currChar);
-            } else if (isOneLineComment(currChar)) {
-                skipOneLineComment();
-            } else if (isMultiLineComment(currChar)) {
-                skipMultiLineComment(currChar);
-            } else if (isStringLiteral(currChar)) {
-                readStringLiteral(currChar);
-            } else {
-                var newState = getState(currChar);
-                if (newState == currState && newState != READ_SEP) {
-                    buffer.append(currChar);
-                } else {
-                    this.commitBufferedToken();
-                    currState = newState;
-                    if (
-                            newState == READ_ALPHA ||
-                                    newState == READ_OP ||
-                                    isPersistentSeparator(String.valueOf(currChar))
-                    ) {
-                        buffer.append(currChar);
-                    } else if (newState == EMPTY) {
-                        var message = format(
-                                "Error in lexical analysis at line - %d, column - %d. Unrecognized Character: \"%s\".",
-                                this.line,
-                                this.column,
-                                currChar
-                        );
-                        throw new LexicalAnalysisException(message);
-                    }
-                }
-                this.setNewPosition(currChar);
-            }
-        }
-        this.commitBufferedToken();
+        var tokens = new LexerContext(source, options).tokenize();
         long elapsedTime = System.nanoTime() - startTime;
 
         log.info(
@@ -149,139 +193,127 @@ public class LexicalAnalyzer {
         return tokens;
     }
 
-    private boolean isStringLiteral(Character currChar) {
-        return currChar == '\"' || currChar == '\'';
-    }
-
-    private boolean isMultiLineComment(Character currChar) {
-        return currChar == '*' && this.buffer.length() == 1 && this.buffer.charAt(0) == '/';
-    }
-
-    private boolean isOneLineComment(Character currChar) {
-        return currChar == '/' && this.buffer.length() == 1 && this.buffer.charAt(0) == '/';
-    }
-
-    private void initialize(File inputFile) throws FileNotFoundException {
-        this.tokens = new ArrayList<>();
-        this.reader = new FileReader(inputFile);
-        this.buffer = new StringBuilder();
-        this.currState = EMPTY;
-        this.column = 1;
-        this.line = 1;
-    }
-
-    private void readStringLiteral(Character startingQuote) throws IOException {
-        int startingLine = this.line;
-        int startingColumn = this.column;
-        this.commitBufferedToken();
-        this.setNewPosition(startingQuote);
-        this.buffer.append(startingQuote);
-
-        char curr;
-        char prev = ' ';
-        while (((curr = (char) this.reader.read()) != startingQuote) || (prev == '\\')) {
-            if (curr == '\n' || !this.reader.ready()) {
-                var message = format(
-                        "Error in lexical analysis at line - %d, column - %d. Unacceptable literal: \"%s\".",
-                        startingLine,
-                        startingColumn,
-                        buffer.toString()
-                );
-                throw new LexicalAnalysisException(message);
+    /**
+     * Function, that scans given input file without stopping at lexical errors
+     *
+     * @param inputFile file containing source code
+     * @param options   options selecting how the file is read
+     * @return Tokens, with an error token in place of each lexical error, and the list of errors
+     * @throws IOException if <b>input file</b> does not exist.
+     */
+    public LexingResult tokenizeRecovering(File inputFile, LexerOptions options) throws IOException {
+        log.info("Initializing Lexical Analyzer for Parsing {}.", inputFile.getAbsolutePath());
+        return switch (options.getInputMode()) {
+            case IN_MEMORY -> this.tokenizeRecovering(CharArraySourceReader.of(inputFile), options);
+            case MAPPED -> {
+                try (var source = MappedSourceReader.of(inputFile)) {
+                    yield this.tokenizeRecovering(source, options);
+                }
             }
-            this.buffer.append(curr);
-            this.setNewPosition(curr);
-            prev = curr;
-        }
-
-        this.buffer.append(curr);
-        this.setNewPosition(curr);
-        this.commitBufferedToken();
+        };
     }
 
-    private void skipMultiLineComment(Character currChar) throws IOException {
-        this.setNewPosition(currChar);
-        this.cleanBuffer();
-
-        char currC;
-        char prevC = ' ';
-        while (!((currC = (char) this.reader.read()) == '/' && prevC == '*')) {
-            prevC = currC;
-            this.setNewPosition(currC);
-        }
+    /**
+     * Function, that scans given source without stopping at lexical errors.
+     * Each error is recorded as a {@link Diagnostic}, replaced by a {@link tokens.ErrorToken}, and scanning resumes
+     * at the next separator, so a single pass reports every error.
+     *
+     * @param source  reader positioned at the beginning of the source code
+     * @param options options selecting how the source is scanned
+     * @return Tokens, with an error token in place of each lexical error, and the list of errors
+     * @throws IOException if <b>source</b> cannot be read.
+     */
+    public LexingResult tokenizeRecovering(SourceReader source, LexerOptions options) throws IOException {
+        long startTime = System.nanoTime();
 
-        this.setNewPosition(currC);
-    }
+        var diagnostics = new ArrayList<Diagnostic>();
+        var tokens = new LexerContext(source, options, diagnostics).tokenize();
+        long elapsedTime = System.nanoTime() - startTime;
 
-    private void skipOneLineComment() throws IOException {
-        //noinspection StatementWithEmptyBody
-        while ((char) this.reader.read() != '\n') { }
-        this.setNewPosition('\n');
-        this.cleanBuffer();
+        log.info(
+                "Parsing finished with {} errors. Time taken to parse sourcecode: {} ms.",
+                diagnostics.size(),
+                elapsedTime / 1000000.0
+        );
+        return new LexingResult(tokens, diagnostics);
     }
 
-    private void readBracket(Character currChar) {
-        this.commitBufferedToken();
-        this.setNewPosition(currChar);
-        this.commitToken(String.valueOf(currChar));
-        this.currState = EMPTY;
+    /**
+     * Function, that scans given input file into a compact token buffer
+     *
+     * @param inputFile file containing source code
+     * @return Buffer of tokens referencing the loaded source
+     * @throws IOException              if <b>input file</b> does not exist.
+     * @throws LexicalAnalysisException if <b>input file</b> contains lexically incorrect program.
+     */
+    public TokenBuffer tokenizeCompact(File inputFile) throws IOException, LexicalAnalysisException {
+        log.info("Initializing Lexical Analyzer for Parsing {}.", inputFile.getAbsolutePath());
+        return this.tokenizeCompact(CharArraySourceReader.of(inputFile));
     }
 
-    private void commitBufferedToken() {
-        if (this.buffer.length() == 0) {
-            return;
-        }
+    /**
+     * Function, that scans given in-memory source into a compact token buffer.
+     * Only a few token objects are alive at a time; the buffer keeps primitive fields and the source array.
+     *
+     * @param source reader positioned at the beginning of the source code
+     * @return Buffer of tokens referencing the source array
+     * @throws IOException              if <b>source</b> cannot be read.
+     * @throws LexicalAnalysisException if <b>source</b> contains lexically incorrect program.
+     */
+    public TokenBuffer tokenizeCompact(CharArraySourceReader source) throws IOException, LexicalAnalysisException {
+        long startTime = System.nanoTime();
 
-        var bufferedStr = this.buffer.toString();
-        if (isRealLiteral("0." + bufferedStr) && tokens.size() >= 2) {
-            var tokensCnt = tokens.size();
-            var start = tokens.get(tokensCnt - 2);
-            var tryRealLiteral = start.getToken() + tokens.get(tokensCnt - 1)
-                                                          .getToken() + bufferedStr;
-
-            if (isRealLiteral(tryRealLiteral)) {
-                tokens.remove(tokensCnt - 1);
-                tokens.remove(tokensCnt - 2);
-                commitToken(tryRealLiteral, start.getLine(), start.getColumn());
-            } else {
-                commitToken(bufferedStr);
-            }
-            cleanBuffer();
-        } else {
-            commitToken(bufferedStr);
-            cleanBuffer();
+        var context = new LexerContext(source);
+        var buffer = new TokenBuffer(source.getChars(), context.getLineIndex());
+        Token token;
+        while ((token = context.nextToken()) != null) {
+            buffer.add(token);
         }
-    }
-
-    private void commitToken(String token) {
-        this.tokens.add(Token.tokenize(token, this.line, this.column - token.length()));
-    }
+        buffer.trimToSize();
+        long elapsedTime = System.nanoTime() - startTime;
 
-    private void commitToken(String token, Integer line, Integer column) {
-        this.tokens.add(Token.tokenize(token, line, column));
+        log.info(
+                "Parsing finished successfully. Time taken to parse sourcecode: {} ms.",
+                elapsedTime / 1000000.0
+        );
+        return buffer;
     }
 
-    private void cleanBuffer() {
-        this.buffer = new StringBuilder();
+    /**
+     * Function, that opens given input file as a lazily lexed token stream.
+     * The stream must be closed to release the file when mapped input is used.
+     *
+     * @param inputFile file containing source code
+     * @param options   options selecting how the file is read
+     * @return Stream of tokens
+     * @throws IOException if <b>input file</b> does not exist.
+     */
+    public TokenStream stream(File inputFile, LexerOptions options) throws IOException {
+        log.info("Initializing Lexical Analyzer for Streaming {}.", inputFile.getAbsolutePath());
+        return switch (options.getInputMode()) {
+            case IN_MEMORY -> new TokenStream(new LexerContext(CharArraySourceReader.of(inputFile), options), null);
+            case MAPPED -> {
+                var source = MappedSourceReader.of(inputFile);
+                yield new TokenStream(new LexerContext(source, options), source);
+            }
+        };
     }
 
-    private void setNewPosition(Character curr) {
-        var currStringChar = String.valueOf(curr);
-        if (currStringChar.equals(NEW_LINE_SEPARATOR_TOKEN)) {
-            ++this.line;
-            this.column = 1;
-        } else if (currStringChar.equals(TAB_SPACE_SEPARATOR_TOKEN)) {
-            this.column += 4;
-        } else {
-            ++this.column;
-        }
+    /**
+     * Function, that wraps given source into a lazily lexed token stream
+     *
+     * @param source reader positioned at the beginning of the source code
+     * @return Stream of tokens
+     */
+    public TokenStream stream(SourceReader source) {
+        return new TokenStream(new LexerContext(source), null);
     }
 
     public enum State {
         EMPTY, READ_SEP, READ_ALPHA, READ_OP;
 
-        public static State getState(Character currChar) {
-            if (isLetter(currChar) || isDigit(currChar) || currChar == '_') {
+        public static State getState(char currChar) {
+            if (isAlphaTokenChar(currChar)) {
                 return READ_ALPHA;
             } else if (isOperatorTokenChar(currChar) || currChar == '.') {
                 return READ_OP;
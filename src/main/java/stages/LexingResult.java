@@ -0,0 +1,32 @@
+package stages;
+
+import tokens.Token;
+
+import java.util.List;
+
+/**
+ * Tokens and lexical errors of a source lexed in recovering mode.
+ * Every error is reported once in {@link #getDiagnostics()} and appears as a {@link tokens.ErrorToken} in
+ * {@link #getTokens()}.
+ */
+public final class LexingResult {
+    private final List<Token> tokens;
+    private final List<Diagnostic> diagnostics;
+
+    public LexingResult(List<Token> tokens, List<Diagnostic> diagnostics) {
+        this.tokens = tokens;
+        this.diagnostics = diagnostics;
+    }
+
+    public List<Token> getTokens() {
+        return this.tokens;
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return this.diagnostics;
+    }
+
+    public boolean hasErrors() {
+        return !this.diagnostics.isEmpty();
+    }
+}
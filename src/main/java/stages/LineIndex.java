@@ -0,0 +1,142 @@
+package stages;
+
+import tokens.SourcePositions;
+
+import java.util.Arrays;
+
+/**
+ * Offsets of line starts and tabs of a scanned source. The lexer only counts characters; lines and columns are
+ * looked up here by binary search when they are needed.
+ * <p>
+ * Columns start at 1, and a tab moves to the next tab stop, every {@value #TAB_WIDTH} columns.
+ */
+public final class LineIndex implements SourcePositions {
+    public static final int TAB_WIDTH = 4;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int firstLine;
+    private int[] lineStarts;
+    // Index of the first tab at or after the start of each line, so that a line's tabs are found without searching.
+    private int[] lineFirstTabs;
+    private int lineCount;
+    // Copies of the last line's entries; the lexer asks about the line it is scanning far more often than others.
+    private int lastLineStart;
+    private int lastLineFirstTab;
+    private int[] tabs;
+    private int tabCount;
+
+    /**
+     * Creates an index for a source scanned from the middle of a line.
+     *
+     * @param firstLine      number of the line the scan starts on
+     * @param firstLineStart offset at which that line would start if it had no tabs before the scan
+     */
+    LineIndex(int firstLine, int firstLineStart) {
+        this.firstLine = firstLine;
+        this.lineStarts = new int[INITIAL_CAPACITY];
+        this.lineStarts[0] = firstLineStart;
+        this.lineFirstTabs = new int[INITIAL_CAPACITY];
+        this.lineCount = 1;
+        this.lastLineStart = firstLineStart;
+        this.lastLineFirstTab = 0;
+        this.tabs = new int[0];
+        this.tabCount = 0;
+    }
+
+    /**
+     * Records a line break.
+     *
+     * @param offset offset of the first character after the line break
+     */
+    void addLineStart(int offset) {
+        if (this.lineCount == this.lineStarts.length) {
+            this.lineStarts = Arrays.copyOf(this.lineStarts, this.lineCount * 2);
+            this.lineFirstTabs = Arrays.copyOf(this.lineFirstTabs, this.lineCount * 2);
+        }
+        this.lineStarts[this.lineCount] = offset;
+        this.lineFirstTabs[this.lineCount] = this.tabCount;
+        ++this.lineCount;
+        this.lastLineStart = offset;
+        this.lastLineFirstTab = this.tabCount;
+    }
+
+    void addTab(int offset) {
+        if (this.tabCount == this.tabs.length) {
+            this.tabs = Arrays.copyOf(this.tabs, Math.max(this.tabCount * 2, INITIAL_CAPACITY));
+        }
+        this.tabs[this.tabCount++] = offset;
+    }
+
+    /**
+     * @return Number of lines scanned so far.
+     */
+    public int getLineCount() {
+        return this.lineCount;
+    }
+
+    /**
+     * @param offset index of a character in the source, or the source length for its end
+     * @return Line the character is on.
+     */
+    @Override
+    public int getLine(int offset) {
+        if (offset >= this.lastLineStart) {
+            return this.firstLine + this.lineCount - 1;
+        }
+        return this.firstLine + this.lineIndexOf(offset);
+    }
+
+    /**
+     * @param offset index of a character in the source, or the source length for its end
+     * @return Column the character is at.
+     */
+    @Override
+    public int getColumn(int offset) {
+        if (offset >= this.lastLineStart && this.tabCount == this.lastLineFirstTab) {
+            return 1 + offset - this.lastLineStart;
+        }
+        int line = this.lineIndexOf(offset);
+        int endTab = line + 1 < this.lineCount ? this.lineFirstTabs[line + 1] : this.tabCount;
+        int column = 1;
+        int position = this.lineStarts[line];
+        for (int tab = this.lineFirstTabs[line]; tab < endTab && this.tabs[tab] < offset; ++tab) {
+            column += this.tabs[tab] - position;
+            column += TAB_WIDTH - (column - 1) % TAB_WIDTH;
+            position = this.tabs[tab] + 1;
+        }
+        return column + offset - position;
+    }
+
+    /**
+     * @return Number of bytes held by the index arrays.
+     */
+    public long getFootprintBytes() {
+        return (long) (this.lineStarts.length + this.lineFirstTabs.length + this.tabs.length) * Integer.BYTES;
+    }
+
+    private int lineIndexOf(int offset) {
+        if (offset >= this.lastLineStart) {
+            return this.lineCount - 1;
+        }
+        // A token is committed when the next character is read, which may already have started a new line.
+        if (this.lineCount > 1 && offset >= this.lineStarts[this.lineCount - 2]) {
+            return this.lineCount - 2;
+        }
+        return Math.max(lowerBound(this.lineStarts, 0, this.lineCount, offset + 1) - 1, 0);
+    }
+
+    // Index of the first of the sorted values in [from, to) that is not less than the key.
+    private static int lowerBound(int[] values, int from, int to, int key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
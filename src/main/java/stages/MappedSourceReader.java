@@ -0,0 +1,116 @@
+package stages;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Source reader over a memory-mapped file. UTF-8 is decoded on the fly, so the program text is never copied to the heap
+ * and repeated runs over the same script are served straight from the OS page cache.
+ * Malformed byte sequences are decoded as U+FFFD, the same way {@link java.io.FileReader} replaces them.
+ */
+public final class MappedSourceReader implements SourceReader, Closeable {
+    private static final int REPLACEMENT_CHAR = '\uFFFD';
+    private static final int NONE = -2;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int lookahead = NONE;
+    private int pendingLowSurrogate = NONE;
+
+    private MappedSourceReader(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps the given file into memory.
+     *
+     * @param inputFile file containing UTF-8 encoded source code
+     * @return reader positioned at the beginning of the file. Must be closed after use.
+     * @throws IOException if <b>input file</b> does not exist, cannot be mapped or is larger than 2 GiB.
+     */
+    public static MappedSourceReader of(File inputFile) throws IOException {
+        var channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Source file is too large to be mapped: " + inputFile.getAbsolutePath());
+            }
+            return new MappedSourceReader(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() {
+        if (this.lookahead != NONE) {
+            int curr = this.lookahead;
+            this.lookahead = NONE;
+            return curr;
+        }
+        return this.decodeNext();
+    }
+
+    @Override
+    public int peek() {
+        if (this.lookahead == NONE) {
+            this.lookahead = this.decodeNext();
+        }
+        return this.lookahead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private int decodeNext() {
+        if (this.pendingLowSurrogate != NONE) {
+            int low = this.pendingLowSurrogate;
+            this.pendingLowSurrogate = NONE;
+            return low;
+        }
+        if (!this.buffer.hasRemaining()) {
+            return EOF;
+        }
+
+        int first = this.buffer.get() & 0xFF;
+        if (first < 0x80) {
+            return first;
+        } else if (first >= 0xC2 && first <= 0xDF) {
+            return this.decodeSequence(first & 0x1F, 1, 0x80);
+        } else if (first >= 0xE0 && first <= 0xEF) {
+            int codePoint = this.decodeSequence(first & 0x0F, 2, 0x800);
+            return Character.isSurrogate((char) codePoint) ? REPLACEMENT_CHAR : codePoint;
+        } else if (first >= 0xF0 && first <= 0xF4) {
+            int codePoint = this.decodeSequence(first & 0x07, 3, 0x10000);
+            if (codePoint == REPLACEMENT_CHAR || codePoint > Character.MAX_CODE_POINT) {
+                return REPLACEMENT_CHAR;
+            }
+            this.pendingLowSurrogate = Character.lowSurrogate(codePoint);
+            return Character.highSurrogate(codePoint);
+        }
+        return REPLACEMENT_CHAR;
+    }
+
+    private int decodeSequence(int codePoint, int continuationBytes, int minimalCodePoint) {
+        for (int i = 0; i < continuationBytes; ++i) {
+            if (!this.buffer.hasRemaining()) {
+                return REPLACEMENT_CHAR;
+            }
+            int next = this.buffer.get(this.buffer.position()) & 0xFF;
+            if ((next & 0xC0) != 0x80) {
+                return REPLACEMENT_CHAR;
+            }
+            this.buffer.position(this.buffer.position() + 1);
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+        return codePoint < minimalCodePoint ? REPLACEMENT_CHAR : codePoint;
+    }
+}
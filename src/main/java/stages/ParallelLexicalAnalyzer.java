@@ -0,0 +1,182 @@
+package stages;
+
+import org.slf4j.Logger;
+import tokens.Token;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Tokenizes many source files at once on a {@link ForkJoinPool}.
+ * Every file is scanned independently by {@link LexicalAnalyzer}; a file that fails to read or to tokenize
+ * is reported in its {@link FileResult} and does not stop the rest of the batch.
+ */
+public class ParallelLexicalAnalyzer {
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(ParallelLexicalAnalyzer.class);
+
+    private final ForkJoinPool pool;
+    private final LexerOptions options;
+
+    public ParallelLexicalAnalyzer() {
+        this(ForkJoinPool.commonPool(), new LexerOptions());
+    }
+
+    public ParallelLexicalAnalyzer(ForkJoinPool pool, LexerOptions options) {
+        this.pool = pool;
+        this.options = options;
+    }
+
+    /**
+     * Tokenizes all files with the given extension found in the directory tree.
+     *
+     * @param directory root of the directory tree
+     * @param extension file name suffix, e.g. ".pd"
+     * @return per-file results ordered by path, plus aggregated timing.
+     * @throws IOException if <b>directory</b> cannot be walked.
+     */
+    public BatchResult tokenizeTree(File directory, String extension) throws IOException {
+        List<File> files;
+        try (var paths = Files.walk(directory.toPath())) {
+            files = paths.filter(Files::isRegularFile)
+                         .filter(path -> path.getFileName().toString().endsWith(extension))
+                         .sorted()
+                         .map(Path::toFile)
+                         .collect(Collectors.toList());
+        }
+        return this.tokenize(files);
+    }
+
+    /**
+     * Tokenizes the given files in parallel.
+     *
+     * @param files source files
+     * @return per-file results in the order of <b>files</b>, plus aggregated timing.
+     */
+    public BatchResult tokenize(Collection<File> files) {
+        log.info("Tokenizing {} files with parallelism {}.", files.size(), this.pool.getParallelism());
+        long startTime = System.nanoTime();
+
+        var tasks = new ArrayList<Callable<FileResult>>(files.size());
+        for (File file : files) {
+            tasks.add(() -> this.tokenizeFile(file));
+        }
+
+        var results = new ArrayList<FileResult>(files.size());
+        for (Future<FileResult> future : this.pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for tokenization results", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Tokenization task failed unexpectedly", e.getCause());
+            }
+        }
+
+        var batch = new BatchResult(results, System.nanoTime() - startTime);
+        log.info(
+                "Tokenized {} files ({} failed) in {} ms, {} ms of lexing in total.",
+                results.size(),
+                batch.getFailedCount(),
+                batch.getWallTimeNanos() / 1000000.0,
+                batch.getTotalLexingNanos() / 1000000.0
+        );
+        return batch;
+    }
+
+    private FileResult tokenizeFile(File file) {
+        long startTime = System.nanoTime();
+        try {
+            var tokens = LexicalAnalyzer.getInstance().tokenize(file, this.options);
+            return new FileResult(file, tokens, null, System.nanoTime() - startTime);
+        } catch (IOException | RuntimeException e) {
+            // Any unchecked exception fails only this file: a LexicalAnalysisException, but also e.g. the
+            // NumberFormatException of an integer literal out of range
+            return new FileResult(file, Collections.emptyList(), e, System.nanoTime() - startTime);
+        }
+    }
+
+    public static class FileResult {
+        private final File file;
+        private final List<Token> tokens;
+        private final Exception error;
+        private final long elapsedNanos;
+
+        public FileResult(File file, List<Token> tokens, Exception error, long elapsedNanos) {
+            this.file = file;
+            this.tokens = tokens;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public File getFile() {
+            return this.file;
+        }
+
+        public List<Token> getTokens() {
+            return this.tokens;
+        }
+
+        /**
+         * @return exception that stopped tokenization of this file, or {@code null} if it succeeded.
+         */
+        public Exception getError() {
+            return this.error;
+        }
+
+        public boolean isSuccessful() {
+            return this.error == null;
+        }
+
+        public long getElapsedNanos() {
+            return this.elapsedNanos;
+        }
+    }
+
+    public static class BatchResult {
+        private final List<FileResult> files;
+        private final long wallTimeNanos;
+
+        public BatchResult(List<FileResult> files, long wallTimeNanos) {
+            this.files = files;
+            this.wallTimeNanos = wallTimeNanos;
+        }
+
+        public List<FileResult> getFiles() {
+            return this.files;
+        }
+
+        /**
+         * @return time elapsed between submitting the batch and collecting the last result.
+         */
+        public long getWallTimeNanos() {
+            return this.wallTimeNanos;
+        }
+
+        /**
+         * @return sum of the time spent on every file, i.e. the time a sequential run would roughly take.
+         */
+        public long getTotalLexingNanos() {
+            return this.files.stream().mapToLong(FileResult::getElapsedNanos).sum();
+        }
+
+        public long getTokenCount() {
+            return this.files.stream().mapToLong(file -> file.getTokens().size()).sum();
+        }
+
+        public long getFailedCount() {
+            return this.files.stream().filter(file -> !file.isSuccessful()).count();
+        }
+    }
+}
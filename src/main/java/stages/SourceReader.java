@@ -0,0 +1,27 @@
+package stages;
+
+import java.io.IOException;
+
+/**
+ * Character source consumed by {@link LexicalAnalyzer}.
+ * Implementations are read strictly front to back, with one character of lookahead.
+ */
+public interface SourceReader {
+    int EOF = -1;
+
+    /**
+     * Consumes the next character of the source.
+     *
+     * @return next character, or {@link #EOF} if the source is exhausted.
+     * @throws IOException if the underlying source cannot be read.
+     */
+    int read() throws IOException;
+
+    /**
+     * Returns the next character without consuming it.
+     *
+     * @return next character, or {@link #EOF} if the source is exhausted.
+     * @throws IOException if the underlying source cannot be read.
+     */
+    int peek() throws IOException;
+}
@@ -0,0 +1,37 @@
+package stages;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Source reader pulling characters one by one from an arbitrary {@link Reader}.
+ * Kept for streams that cannot be loaded up front; files should go through {@link CharArraySourceReader}.
+ */
+public final class StreamSourceReader implements SourceReader {
+    private final Reader reader;
+    private int lookahead;
+    private boolean hasLookahead;
+
+    public StreamSourceReader(Reader reader) {
+        this.reader = reader;
+        this.hasLookahead = false;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (this.hasLookahead) {
+            this.hasLookahead = false;
+            return this.lookahead;
+        }
+        return this.reader.read();
+    }
+
+    @Override
+    public int peek() throws IOException {
+        if (!this.hasLookahead) {
+            this.lookahead = this.reader.read();
+            this.hasLookahead = true;
+        }
+        return this.lookahead;
+    }
+}
@@ -0,0 +1,142 @@
+package stages;
+
+import tokens.Token;
+import tokens.TokenKind;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Compact token list. Instead of one object per token it keeps kinds, source offsets and lengths in parallel
+ * primitive arrays, and the token text stays in the source buffer it was scanned from. Lines and columns are
+ * computed from the offsets through the {@link LineIndex} of the scan when they are asked for.
+ * <p>
+ * {@link #asList()} exposes the buffer as a {@code List<Token>} for existing consumers; tokens of that view are
+ * created on access and are not retained by the buffer.
+ */
+public final class TokenBuffer {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final char[] source;
+    private final LineIndex lineIndex;
+    private byte[] kinds;
+    private int[] offsets;
+    private int[] lengths;
+    private int size;
+
+    TokenBuffer(char[] source, LineIndex lineIndex) {
+        this.source = source;
+        this.lineIndex = lineIndex;
+        this.kinds = new byte[INITIAL_CAPACITY];
+        this.offsets = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    void add(Token token) {
+        if (this.size == this.kinds.length) {
+            this.grow();
+        }
+        this.kinds[this.size] = (byte) token.getKind().ordinal();
+        this.offsets[this.size] = token.getOffset();
+        this.lengths[this.size] = token.getToken().length();
+        ++this.size;
+    }
+
+    /**
+     * Shrinks the arrays to the number of stored tokens.
+     */
+    void trimToSize() {
+        this.kinds = Arrays.copyOf(this.kinds, this.size);
+        this.offsets = Arrays.copyOf(this.offsets, this.size);
+        this.lengths = Arrays.copyOf(this.lengths, this.size);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public TokenKind getKind(int index) {
+        return TokenKind.fromOrdinal(this.kinds[this.checkIndex(index)]);
+    }
+
+    public int getOffset(int index) {
+        return this.offsets[this.checkIndex(index)];
+    }
+
+    public int getLength(int index) {
+        return this.lengths[this.checkIndex(index)];
+    }
+
+    public int getLine(int index) {
+        return this.lineIndex.getLine(this.offsets[this.checkIndex(index)]);
+    }
+
+    public int getColumn(int index) {
+        return this.lineIndex.getColumn(this.offsets[this.checkIndex(index)]);
+    }
+
+    public String getText(int index) {
+        var kind = this.getKind(index);
+        if (kind.hasFixedText()) {
+            return kind.getText();
+        }
+        return new String(this.source, this.offsets[index], this.lengths[index]);
+    }
+
+    /**
+     * Builds the token instance stored at the given index.
+     *
+     * @param index position of the token
+     * @return Token equal to the one the lexer produced at this position.
+     */
+    public Token get(int index) {
+        var token = this.getKind(index).create(this.getText(index), 0, 0);
+        token.setOffset(this.offsets[index], this.lineIndex);
+        return token;
+    }
+
+    /**
+     * @return Read-only {@code List<Token>} view of this buffer.
+     */
+    public List<Token> asList() {
+        return new TokenListView();
+    }
+
+    /**
+     * @return Number of bytes held by the token arrays and the line index, not counting the shared source buffer.
+     */
+    public long getFootprintBytes() {
+        return (long) this.kinds.length * Byte.BYTES
+                + (long) (this.offsets.length + this.lengths.length) * Integer.BYTES
+                + this.lineIndex.getFootprintBytes();
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+        return index;
+    }
+
+    private void grow() {
+        int capacity = this.kinds.length * 2;
+        this.kinds = Arrays.copyOf(this.kinds, capacity);
+        this.offsets = Arrays.copyOf(this.offsets, capacity);
+        this.lengths = Arrays.copyOf(this.lengths, capacity);
+    }
+
+    private final class TokenListView extends AbstractList<Token> implements RandomAccess {
+        @Override
+        public Token get(int index) {
+            return TokenBuffer.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return TokenBuffer.this.size;
+        }
+    }
+}
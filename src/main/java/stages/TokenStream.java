@@ -0,0 +1,115 @@
+package stages;
+
+import exception.LexicalAnalysisException;
+import tokens.Token;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Pull-based token source. Tokens are lexed only when they are requested, so a consumer that does not
+ * {@link #mark()} the stream keeps no more than a few tokens in memory regardless of the program size.
+ * <p>
+ * Lexical errors are thrown as {@link LexicalAnalysisException} at the point the offending token is reached,
+ * read errors are rethrown as {@link UncheckedIOException}.
+ */
+public final class TokenStream implements Iterator<Token>, Closeable {
+    private final LexerContext context;
+    private final Closeable resource;
+    private final ArrayList<Token> buffered;
+    private int position;
+    private int markPosition;
+
+    TokenStream(LexerContext context, Closeable resource) {
+        this.context = context;
+        this.resource = resource;
+        this.buffered = new ArrayList<>();
+        this.position = 0;
+        this.markPosition = -1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.fill();
+    }
+
+    /**
+     * Returns the next token without consuming it.
+     *
+     * @return next token, or {@code null} if the stream is exhausted.
+     */
+    public Token peek() {
+        return this.fill() ? this.buffered.get(this.position) : null;
+    }
+
+    @Override
+    public Token next() {
+        if (!this.fill()) {
+            throw new NoSuchElementException("Token stream is exhausted.");
+        }
+        var token = this.buffered.get(this.position++);
+        if (this.markPosition < 0 && this.position == this.buffered.size()) {
+            this.buffered.clear();
+            this.position = 0;
+        }
+        return token;
+    }
+
+    /**
+     * Remembers the current position, so that {@link #reset()} can return to it.
+     * Tokens read after the mark are retained until the mark is released.
+     */
+    public void mark() {
+        this.buffered.subList(0, this.position).clear();
+        this.position = 0;
+        this.markPosition = 0;
+    }
+
+    /**
+     * Returns to the position remembered by the last {@link #mark()}. The mark stays in place.
+     *
+     * @throws IllegalStateException if the stream was not marked.
+     */
+    public void reset() {
+        if (this.markPosition < 0) {
+            throw new IllegalStateException("Token stream was not marked.");
+        }
+        this.position = this.markPosition;
+    }
+
+    /**
+     * Forgets the mark, so that already consumed tokens can be released.
+     */
+    public void unmark() {
+        this.markPosition = -1;
+        this.buffered.subList(0, this.position).clear();
+        this.position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.resource != null) {
+            this.resource.close();
+        }
+    }
+
+    private boolean fill() {
+        if (this.position < this.buffered.size()) {
+            return true;
+        }
+        try {
+            var token = this.context.nextToken();
+            if (token == null) {
+                return false;
+            }
+            this.buffered.add(token);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
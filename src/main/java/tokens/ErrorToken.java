@@ -0,0 +1,11 @@
+package tokens;
+
+/**
+ * Text the lexer could not turn into a token. Emitted only when lexing in recovering mode, in place of
+ * the exception that would otherwise stop the lexer.
+ */
+public class ErrorToken extends Token {
+    public ErrorToken(String token, int line, int column) {
+        super(token, line, column);
+    }
+}
@@ -3,25 +3,24 @@ package tokens;
 import exception.LexicalAnalysisException;
 import org.slf4j.Logger;
 
-import java.util.regex.Pattern;
-
 import static java.lang.String.format;
 
 public class Identifier extends Token {
 
-    private static final Pattern regexp = Pattern.compile("^([a-zA-Z_][a-zA-Z\\d_]*)$");
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(Identifier.class);
 
     public static Identifier getIdentifier(
             String token,
-            Integer line,
-            Integer column
+            int line,
+            int column
     ) throws LexicalAnalysisException {
-        log.debug("Parsing token as identifier {}: ({}:{}).", token, line, column);
+        if (log.isDebugEnabled()) {
+            log.debug("Parsing token as identifier {}: ({}:{}).", token, line, column);
+        }
         return new Identifier(token, line, column);
     }
 
-    private Identifier(String token, Integer line, Integer column) throws LexicalAnalysisException {
+    private Identifier(String token, int line, int column) throws LexicalAnalysisException {
         super(token, line, column);
         if (!isAcceptableIdentifier(token)) {
             var message = format(
@@ -34,9 +33,18 @@ public class Identifier extends Token {
         }
     }
 
-    private static Boolean isAcceptableIdentifier(String token) {
-        var matcher = regexp.matcher(token);
-        return !token.isBlank() && matcher.matches();
+    // An ASCII letter or underscore, followed by ASCII letters, digits and underscores.
+    private static boolean isAcceptableIdentifier(String token) {
+        if (token.isEmpty() || Literal.isAsciiDigit(token.charAt(0))) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); ++i) {
+            var c = token.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' || Literal.isAsciiDigit(c))) {
+                return false;
+            }
+        }
+        return true;
     }
 
 }
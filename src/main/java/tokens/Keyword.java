@@ -63,11 +63,11 @@ public class Keyword extends Token {
     );
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(Keyword.class);
 
-    public Keyword(String token, Integer line, Integer column) {
+    public Keyword(String token, int line, int column) {
         super(token, line, column);
     }
 
-    public static Boolean isKeyword(String token) {
+    public static boolean isKeyword(String token) {
         return keywordTokens.contains(token);
     }
 
@@ -81,10 +81,12 @@ public class Keyword extends Token {
      */
     public static Keyword getKeyword(
             String token,
-            Integer line,
-            Integer column
+            int line,
+            int column
     ) throws LexicalAnalysisException {
-        log.debug("Parsing token as keyword {}: ({}:{}).", token, line, column);
+        if (log.isDebugEnabled()) {
+            log.debug("Parsing token as keyword {}: ({}:{}).", token, line, column);
+        }
         return switch (token) {
             case VAR_KEYWORD_TOKEN -> new VarKeyword(token, line, column);
             case TRUE_KEYWORD_TOKEN -> new TrueKeyword(token, line, column);
@@ -122,139 +124,139 @@ public class Keyword extends Token {
     }
 
     public static class VarKeyword extends Keyword {
-        public VarKeyword(String token, Integer line, Integer column) {
+        public VarKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class TrueKeyword extends Keyword {
-        public TrueKeyword(String token, Integer line, Integer column) {
+        public TrueKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class FalseKeyword extends Keyword {
-        public FalseKeyword(String token, Integer line, Integer column) {
+        public FalseKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class IsKeyword extends Keyword {
-        public IsKeyword(String token, Integer line, Integer column) {
+        public IsKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class EndKeyword extends Keyword {
-        public EndKeyword(String token, Integer line, Integer column) {
+        public EndKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class IfKeyword extends Keyword {
-        public IfKeyword(String token, Integer line, Integer column) {
+        public IfKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ThenKeyword extends Keyword {
-        public ThenKeyword(String token, Integer line, Integer column) {
+        public ThenKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ElseKeyword extends Keyword {
-        public ElseKeyword(String token, Integer line, Integer column) {
+        public ElseKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ForKeyword extends Keyword {
-        public ForKeyword(String token, Integer line, Integer column) {
+        public ForKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class WhileKeyword extends Keyword {
-        public WhileKeyword(String token, Integer line, Integer column) {
+        public WhileKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class InKeyword extends Keyword {
-        public InKeyword(String token, Integer line, Integer column) {
+        public InKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class LoopKeyword extends Keyword {
-        public LoopKeyword(String token, Integer line, Integer column) {
+        public LoopKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class PrintKeyword extends Keyword {
-        public PrintKeyword(String token, Integer line, Integer column) {
+        public PrintKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ReturnKeyword extends Keyword {
-        public ReturnKeyword(String token, Integer line, Integer column) {
+        public ReturnKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class IntKeyword extends Keyword {
-        public IntKeyword(String token, Integer line, Integer column) {
+        public IntKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class RealKeyword extends Keyword {
-        public RealKeyword(String token, Integer line, Integer column) {
+        public RealKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class BoolKeyword extends Keyword {
-        public BoolKeyword(String token, Integer line, Integer column) {
+        public BoolKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class StringKeyword extends Keyword {
-        public StringKeyword(String token, Integer line, Integer column) {
+        public StringKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class EmptyKeyword extends Keyword {
-        public EmptyKeyword(String token, Integer line, Integer column) {
+        public EmptyKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class FuncKeyword extends Keyword {
-        public FuncKeyword(String token, Integer line, Integer column) {
+        public FuncKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ReadIntKeyword extends Keyword {
-        public ReadIntKeyword(String token, Integer line, Integer column) {
+        public ReadIntKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ReadRealKeyword extends Keyword {
-        public ReadRealKeyword(String token, Integer line, Integer column) {
+        public ReadRealKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ReadStringKeyword extends Keyword {
-        public ReadStringKeyword(String token, Integer line, Integer column) {
+        public ReadStringKeyword(String token, int line, int column) {
             super(token, line, column);
         }
     }
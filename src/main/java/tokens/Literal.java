@@ -3,47 +3,73 @@ package tokens;
 import exception.LexicalAnalysisException;
 import org.slf4j.Logger;
 
-import java.util.regex.Pattern;
-
 import static java.lang.String.format;
 
 public class Literal extends Token {
 
     public static final String EMPTY_LITERAL_TOKEN = "empty";
-    private static final Pattern numericPattern = Pattern.compile("^[-+]?\\d*\\.?\\d*$");
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(Literal.class);
 
-    public Literal(String token, Integer line, Integer column) {
+    public Literal(String token, int line, int column) {
         super(token, line, column);
     }
 
-    public static Boolean isEmptyLiteral(String token) {
+    public static boolean isEmptyLiteral(String token) {
         return token.equals(EMPTY_LITERAL_TOKEN);
     }
 
-    public static Boolean isStringLiteral(String token) {
+    public static boolean isStringLiteral(String token) {
         var beginningChar = token.charAt(0);
         var endingChar = token.charAt(token.length() - 1);
 
         return (beginningChar == '\"' && endingChar == '\"') || (beginningChar == '\'' && endingChar == '\'');
     }
 
-    private static Boolean isNumeric(String token) {
+    // Accepts an optional sign, digits, at most one period and digits; every part may be empty.
+    private static boolean isNumeric(CharSequence token) {
         if (token == null) {
             return false;
         }
-        return numericPattern.matcher(token).matches();
+        int length = token.length();
+        int i = 0;
+        if (i < length && (token.charAt(i) == '+' || token.charAt(i) == '-')) {
+            ++i;
+        }
+        i = skipDigits(token, i);
+        if (i < length && token.charAt(i) == '.') {
+            i = skipDigits(token, i + 1);
+        }
+        return i == length;
     }
 
-    public static Boolean isIntegerLiteral(String token) {
+    private static int skipDigits(CharSequence token, int from) {
+        int i = from;
+        while (i < token.length() && isAsciiDigit(token.charAt(i))) {
+            ++i;
+        }
+        return i;
+    }
+
+    public static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return Whether the text consists of ASCII digits only, i.e. it is the fractional part of a real literal.
+     */
+    public static boolean isDigits(CharSequence token) {
+        return skipDigits(token, 0) == token.length();
+    }
+
+    public static boolean isIntegerLiteral(String token) {
         return isNumeric(token) && !token.contains(".");
     }
 
-    public static Boolean isRealLiteral(String token) {
+    public static boolean isRealLiteral(String token) {
         return isNumeric(token);
     }
 
-    public static Boolean isLiteral(String token) {
+    public static boolean isLiteral(String token) {
         return isRealLiteral(token)
                 || isIntegerLiteral(token)
                 || isStringLiteral(token)
@@ -60,10 +86,12 @@ public class Literal extends Token {
      */
     public static Literal getLiteral(
             String token,
-            Integer line,
-            Integer column
+            int line,
+            int column
     ) throws LexicalAnalysisException {
-        log.debug("Parsing token as literal {}: ({}:{}).", token, line, column);
+        if (log.isDebugEnabled()) {
+            log.debug("Parsing token as literal {}: ({}:{}).", token, line, column);
+        }
         if (isEmptyLiteral(token)) {
             return new EmptyLiteral(token, line, column);
         } else if (isStringLiteral(token)) {
@@ -84,31 +112,31 @@ public class Literal extends Token {
     }
 
     public static class IntegerLiteral extends Literal {
-        private final Integer value;
+        private final int value;
 
-        public IntegerLiteral(String token, Integer line, Integer column) {
+        public IntegerLiteral(String token, int line, int column) {
             super(token, line, column);
             this.value = Integer.parseInt(token);
         }
 
-        public Integer getValue() {return this.value;}
+        public int getValue() {return this.value;}
     }
 
     public static class RealLiteral extends Literal {
-        private final Double value;
+        private final double value;
 
-        public RealLiteral(String token, Integer line, Integer column) {
+        public RealLiteral(String token, int line, int column) {
             super(token, line, column);
             this.value = Double.parseDouble(token);
         }
 
-        public Double getValue() {return this.value;}
+        public double getValue() {return this.value;}
     }
 
     public static class StringLiteral extends Literal {
         private final String value;
 
-        public StringLiteral(String token, Integer line, Integer column) {
+        public StringLiteral(String token, int line, int column) {
             super(token, line, column);
             this.value = parseString(token);
         }
@@ -121,7 +149,7 @@ public class Literal extends Token {
     }
 
     public static class EmptyLiteral extends Literal {
-        public EmptyLiteral(String token, Integer line, Integer column) {
+        public EmptyLiteral(String token, int line, int column) {
             super(token, line, column);
         }
     }
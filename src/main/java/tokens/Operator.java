@@ -43,11 +43,11 @@ public class Operator extends Token {
     );
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(Operator.class);
 
-    public Operator(String token, Integer line, Integer column) {
+    public Operator(String token, int line, int column) {
         super(token, line, column);
     }
 
-    public static Boolean isOperator(String token) {
+    public static boolean isOperator(String token) {
         return operatorTokens.contains(token);
     }
 
@@ -61,10 +61,12 @@ public class Operator extends Token {
      */
     public static Operator getOperator(
             String token,
-            Integer line,
-            Integer column
+            int line,
+            int column
     ) throws LexicalAnalysisException {
-        log.debug("Parsing token as operator {}: ({}:{}).", token, line, column);
+        if (log.isDebugEnabled()) {
+            log.debug("Parsing token as operator {}: ({}:{}).", token, line, column);
+        }
         return switch (token) {
             case ASSIGNMENT_OPERATOR_TOKEN -> new AssignmentOperator(token, line, column);
             case LOGIC_NOT_OPERATOR_TOKEN -> new LogicNotOperator(token, line, column);
@@ -129,109 +131,109 @@ public class Operator extends Token {
     }
 
     public static class AssignmentOperator extends Operator {
-        public AssignmentOperator(String token, Integer line, Integer column) {
+        public AssignmentOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class LogicNotOperator extends Operator {
-        public LogicNotOperator(String token, Integer line, Integer column) {
+        public LogicNotOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class LogicOrOperator extends Operator {
-        public LogicOrOperator(String token, Integer line, Integer column) {
+        public LogicOrOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class LogicAndOperator extends Operator {
-        public LogicAndOperator(String token, Integer line, Integer column) {
+        public LogicAndOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class LogicXorOperator extends Operator {
-        public LogicXorOperator(String token, Integer line, Integer column) {
+        public LogicXorOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class LogicIsOperator extends Operator {
-        public LogicIsOperator(String token, Integer line, Integer column) {
+        public LogicIsOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ComparisonLessOperator extends Operator {
-        public ComparisonLessOperator(String token, Integer line, Integer column) {
+        public ComparisonLessOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ComparisonLessEqualOperator extends Operator {
-        public ComparisonLessEqualOperator(String token, Integer line, Integer column) {
+        public ComparisonLessEqualOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ComparisonGreaterOperator extends Operator {
-        public ComparisonGreaterOperator(String token, Integer line, Integer column) {
+        public ComparisonGreaterOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ComparisonGreaterEqualOperator extends Operator {
-        public ComparisonGreaterEqualOperator(String token, Integer line, Integer column) {
+        public ComparisonGreaterEqualOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ComparisonEqualOperator extends Operator {
-        public ComparisonEqualOperator(String token, Integer line, Integer column) {
+        public ComparisonEqualOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ComparisonNotEqualOperator extends Operator {
-        public ComparisonNotEqualOperator(String token, Integer line, Integer column) {
+        public ComparisonNotEqualOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ArithmeticPlusOperator extends Operator {
-        public ArithmeticPlusOperator(String token, Integer line, Integer column) {
+        public ArithmeticPlusOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ArithmeticMinusOperator extends Operator {
-        public ArithmeticMinusOperator(String token, Integer line, Integer column) {
+        public ArithmeticMinusOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ArithmeticMultiplicationOperator extends Operator {
-        public ArithmeticMultiplicationOperator(String token, Integer line, Integer column) {
+        public ArithmeticMultiplicationOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ArithmeticDivisionOperator extends Operator {
-        public ArithmeticDivisionOperator(String token, Integer line, Integer column) {
+        public ArithmeticDivisionOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ArrowOperator extends Operator {
-        public ArrowOperator(String token, Integer line, Integer column) {
+        public ArrowOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class RangeOperator extends Operator {
-        public RangeOperator(String token, Integer line, Integer column) {
+        public RangeOperator(String token, int line, int column) {
             super(token, line, column);
         }
     }
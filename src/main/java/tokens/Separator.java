@@ -58,15 +58,15 @@ public class Separator extends Token {
     );
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(Separator.class);
 
-    public Separator(String token, Integer line, Integer column) {
+    public Separator(String token, int line, int column) {
         super(token, line, column);
     }
 
-    public static Boolean isSeparator(String token) {
+    public static boolean isSeparator(String token) {
         return separatorTokens.contains(token);
     }
 
-    public static Boolean isPersistentSeparator(String token) {
+    public static boolean isPersistentSeparator(String token) {
         return persistentSeparatorTokens.contains(token);
     }
 
@@ -80,10 +80,12 @@ public class Separator extends Token {
      */
     public static Separator getSeparator(
             String token,
-            Integer line,
-            Integer column
+            int line,
+            int column
     ) throws LexicalAnalysisException {
-        log.debug("Parsing token as separator {}: ({}:{}).", token, line, column);
+        if (log.isDebugEnabled()) {
+            log.debug("Parsing token as separator {}: ({}:{}).", token, line, column);
+        }
         return switch (token) {
             case OPENING_PARENTHESIS_SEPARATOR_TOKEN -> new OpeningParenthesisSeparator(
                     token,
@@ -139,79 +141,102 @@ public class Separator extends Token {
     }
 
     public static class OpeningParenthesisSeparator extends Separator {
-        public OpeningParenthesisSeparator(String token, Integer line, Integer column) {
+        public OpeningParenthesisSeparator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ClosingParenthesisSeparator extends Separator {
-        public ClosingParenthesisSeparator(String token, Integer line, Integer column) {
+        public ClosingParenthesisSeparator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class OpeningBracketSeparator extends Separator {
-        public OpeningBracketSeparator(String token, Integer line, Integer column) {
+        public OpeningBracketSeparator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ClosingBracketSeparator extends Separator {
-        public ClosingBracketSeparator(String token, Integer line, Integer column) {
+        public ClosingBracketSeparator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class OpeningCurlyBracketSeparator extends Separator {
-        public OpeningCurlyBracketSeparator(String token, Integer line, Integer column) {
+        public OpeningCurlyBracketSeparator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class ClosingCurlyBracketSeparator extends Separator {
-        public ClosingCurlyBracketSeparator(String token, Integer line, Integer column) {
+        public ClosingCurlyBracketSeparator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class SemicolonSeparator extends Separator {
-        public SemicolonSeparator(String token, Integer line, Integer column) {
+        public SemicolonSeparator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class CommaSeparator extends Separator {
-        public CommaSeparator(String token, Integer line, Integer column) {
+        public CommaSeparator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class PeriodSeparator extends Separator {
-        public PeriodSeparator(String token, Integer line, Integer column) {
+        public PeriodSeparator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class WhiteSpaceSeparator extends Separator {
-        public WhiteSpaceSeparator(String token, Integer line, Integer column) {
+        public WhiteSpaceSeparator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class TabSpaceSeparator extends Separator {
-        public TabSpaceSeparator(String token, Integer line, Integer column) {
+        public TabSpaceSeparator(String token, int line, int column) {
             super(token, line, column);
         }
     }
 
     public static class NewLineSeparator extends Separator {
-        public NewLineSeparator(String token, Integer line, Integer column) {
+        // Line that follows the last line break, set only when other line breaks were coalesced into this one, so
+        // that the JSON dump of tokens that were not coalesced has no such field
+        private Integer endLine;
+
+        public NewLineSeparator(String token, int line, int column) {
             super(token, line, column);
         }
+
+        /**
+         * @return Number of lines from the line of the first line break of this token to the line that follows
+         * its last one; more than one when blank lines are coalesced, counting line breaks of comments between them.
+         */
+        public int getLineCount() {
+            return this.getEndLine() - this.getLine();
+        }
+
+        /**
+         * @return Line that follows the last line break of this token.
+         */
+        public int getEndLine() {
+            return this.endLine != null ? this.endLine : this.getLine() + 1;
+        }
+
+        public void setEndLine(int endLine) {
+            this.endLine = endLine;
+        }
     }
 
     public static class WindowsNewLineSeparator extends Separator {
-        public WindowsNewLineSeparator(String token, Integer line, Integer column) {
+        public WindowsNewLineSeparator(String token, int line, int column) {
             super(token, line, column);
         }
     }
@@ -0,0 +1,18 @@
+package tokens;
+
+/**
+ * Maps offsets in a source to lines and columns, so that tokens can look up their position when it is asked for.
+ */
+public interface SourcePositions {
+    /**
+     * @param offset index of a character in the source
+     * @return Line the character is on, starting at 1.
+     */
+    int getLine(int offset);
+
+    /**
+     * @param offset index of a character in the source
+     * @return Column the character is at, starting at 1.
+     */
+    int getColumn(int offset);
+}
@@ -2,10 +2,13 @@ package tokens;
 
 public class Token {
     private String token;
-    private Integer line;
-    private Integer column;
+    private int line;
+    private int column;
+    private int offset;
+    // Set while the line and column have not been looked up from the offset yet
+    private transient volatile SourcePositions positions;
 
-    public Token(String token, Integer line, Integer column) {
+    public Token(String token, int line, int column) {
         this.token = token;
         this.line = line;
         this.column = column;
@@ -21,13 +24,10 @@ public class Token {
         return token;
     }
 
-    public static Token tokenize(String token, Integer line, Integer column) {
-        if (Separator.isSeparator(token)) {
-            return Separator.getSeparator(token, line, column);
-        } else if (Operator.isOperator(token)) {
-            return Operator.getOperator(token, line, column);
-        } else if (Keyword.isKeyword(token)) {
-            return Keyword.getKeyword(token, line, column);
+    public static Token tokenize(String token, int line, int column) {
+        var kind = TokenKind.forFixedText(token);
+        if (kind != null) {
+            return kind.create(line, column);
         } else if (Literal.isLiteral(token)) {
             return Literal.getLiteral(token, line, column);
         } else {
@@ -35,6 +35,13 @@ public class Token {
         }
     }
 
+    /**
+     * @return Kind of this token, shared by all tokens of the same class.
+     */
+    public TokenKind getKind() {
+        return TokenKind.of(this);
+    }
+
     public String getToken() {
         return this.token;
     }
@@ -43,19 +50,58 @@ public class Token {
         this.token = token;
     }
 
-    public Integer getLine() {
+    public int getLine() {
+        this.resolvePosition();
         return this.line;
     }
 
-    public void setLine(Integer line) {
+    public void setLine(int line) {
+        this.resolvePosition();
         this.line = line;
     }
 
-    public Integer getColumn() {
+    public int getColumn() {
+        this.resolvePosition();
         return this.column;
     }
 
-    public void setColumn(Integer column) {
+    public void setColumn(int column) {
+        this.resolvePosition();
         this.column = column;
     }
+
+    /**
+     * @return Index of the token's first character in the source, counted in UTF-16 units.
+     */
+    public int getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * Moves the token, keeping its line and column.
+     */
+    public void setOffset(int offset) {
+        this.resolvePosition();
+        this.offset = offset;
+    }
+
+    /**
+     * Places the token at the given offset. Its line and column are looked up in <b>positions</b> when first asked for.
+     *
+     * @param offset    index of the token's first character in the source
+     * @param positions lines and columns of the source
+     */
+    public void setOffset(int offset, SourcePositions positions) {
+        this.offset = offset;
+        this.positions = positions;
+    }
+
+    private void resolvePosition() {
+        var positions = this.positions;
+        if (positions != null) {
+            this.line = positions.getLine(this.offset);
+            this.column = positions.getColumn(this.offset);
+            this.positions = null;
+        }
+    }
 }
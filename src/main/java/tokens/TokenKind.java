@@ -0,0 +1,212 @@
+package tokens;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Enumerates every concrete token class, so that a token can be stored as a small ordinal
+ * and turned back into its {@link Token} instance on demand.
+ * Kinds with fixed text (keywords, operators and separators) also hold their canonical text,
+ * which is shared by all tokens of the kind.
+ */
+public enum TokenKind {
+    VAR_KEYWORD(Keyword.VarKeyword.class, Keyword.VarKeyword::new, Keyword.VAR_KEYWORD_TOKEN),
+    TRUE_KEYWORD(Keyword.TrueKeyword.class, Keyword.TrueKeyword::new, Keyword.TRUE_KEYWORD_TOKEN),
+    FALSE_KEYWORD(Keyword.FalseKeyword.class, Keyword.FalseKeyword::new, Keyword.FALSE_KEYWORD_TOKEN),
+    IS_KEYWORD(Keyword.IsKeyword.class, Keyword.IsKeyword::new, Keyword.IS_KEYWORD_TOKEN),
+    END_KEYWORD(Keyword.EndKeyword.class, Keyword.EndKeyword::new, Keyword.END_KEYWORD_TOKEN),
+    IF_KEYWORD(Keyword.IfKeyword.class, Keyword.IfKeyword::new, Keyword.IF_KEYWORD_TOKEN),
+    THEN_KEYWORD(Keyword.ThenKeyword.class, Keyword.ThenKeyword::new, Keyword.THEN_KEYWORD_TOKEN),
+    ELSE_KEYWORD(Keyword.ElseKeyword.class, Keyword.ElseKeyword::new, Keyword.ELSE_KEYWORD_TOKEN),
+    FOR_KEYWORD(Keyword.ForKeyword.class, Keyword.ForKeyword::new, Keyword.FOR_KEYWORD_TOKEN),
+    WHILE_KEYWORD(Keyword.WhileKeyword.class, Keyword.WhileKeyword::new, Keyword.WHILE_KEYWORD_TOKEN),
+    IN_KEYWORD(Keyword.InKeyword.class, Keyword.InKeyword::new, Keyword.IN_KEYWORD_TOKEN),
+    LOOP_KEYWORD(Keyword.LoopKeyword.class, Keyword.LoopKeyword::new, Keyword.LOOP_KEYWORD_TOKEN),
+    PRINT_KEYWORD(Keyword.PrintKeyword.class, Keyword.PrintKeyword::new, Keyword.PRINT_KEYWORD_TOKEN),
+    RETURN_KEYWORD(Keyword.ReturnKeyword.class, Keyword.ReturnKeyword::new, Keyword.RETURN_KEYWORD_TOKEN),
+    INT_KEYWORD(Keyword.IntKeyword.class, Keyword.IntKeyword::new, Keyword.INT_KEYWORD_TOKEN),
+    REAL_KEYWORD(Keyword.RealKeyword.class, Keyword.RealKeyword::new, Keyword.REAL_KEYWORD_TOKEN),
+    BOOL_KEYWORD(Keyword.BoolKeyword.class, Keyword.BoolKeyword::new, Keyword.BOOL_KEYWORD_TOKEN),
+    STRING_KEYWORD(Keyword.StringKeyword.class, Keyword.StringKeyword::new, Keyword.STRING_KEYWORD_TOKEN),
+    EMPTY_KEYWORD(Keyword.EmptyKeyword.class, Keyword.EmptyKeyword::new, Keyword.EMPTY_KEYWORD_TOKEN),
+    FUNC_KEYWORD(Keyword.FuncKeyword.class, Keyword.FuncKeyword::new, Keyword.FUNC_KEYWORD_TOKEN),
+    READ_INT_KEYWORD(Keyword.ReadIntKeyword.class, Keyword.ReadIntKeyword::new, Keyword.READ_INT_KEYWORD_TOKEN),
+    READ_REAL_KEYWORD(Keyword.ReadRealKeyword.class, Keyword.ReadRealKeyword::new, Keyword.READ_REAL_KEYWORD_TOKEN),
+    READ_STRING_KEYWORD(Keyword.ReadStringKeyword.class, Keyword.ReadStringKeyword::new, Keyword.READ_STRING_KEYWORD_TOKEN),
+    ASSIGNMENT_OPERATOR(Operator.AssignmentOperator.class, Operator.AssignmentOperator::new, Operator.ASSIGNMENT_OPERATOR_TOKEN),
+    LOGIC_NOT_OPERATOR(Operator.LogicNotOperator.class, Operator.LogicNotOperator::new, Operator.LOGIC_NOT_OPERATOR_TOKEN),
+    LOGIC_OR_OPERATOR(Operator.LogicOrOperator.class, Operator.LogicOrOperator::new, Operator.LOGIC_OR_OPERATOR_TOKEN),
+    LOGIC_AND_OPERATOR(Operator.LogicAndOperator.class, Operator.LogicAndOperator::new, Operator.LOGIC_AND_OPERATOR_TOKEN),
+    LOGIC_XOR_OPERATOR(Operator.LogicXorOperator.class, Operator.LogicXorOperator::new, Operator.LOGIC_XOR_OPERATOR_TOKEN),
+    LOGIC_IS_OPERATOR(Operator.LogicIsOperator.class, Operator.LogicIsOperator::new, Operator.LOGIC_IS_OPERATOR_TOKEN),
+    COMPARISON_LESS_OPERATOR(Operator.ComparisonLessOperator.class, Operator.ComparisonLessOperator::new, Operator.COMPARISON_LESS_OPERATOR_TOKEN),
+    COMPARISON_LESS_EQUAL_OPERATOR(Operator.ComparisonLessEqualOperator.class, Operator.ComparisonLessEqualOperator::new, Operator.COMPARISON_LESS_EQUAL_OPERATOR_TOKEN),
+    COMPARISON_GREATER_OPERATOR(Operator.ComparisonGreaterOperator.class, Operator.ComparisonGreaterOperator::new, Operator.COMPARISON_GREATER_OPERATOR_TOKEN),
+    COMPARISON_GREATER_EQUAL_OPERATOR(Operator.ComparisonGreaterEqualOperator.class, Operator.ComparisonGreaterEqualOperator::new, Operator.COMPARISON_GREATER_EQUAL_OPERATOR_TOKEN),
+    COMPARISON_EQUAL_OPERATOR(Operator.ComparisonEqualOperator.class, Operator.ComparisonEqualOperator::new, Operator.COMPARISON_EQUAL_OPERATOR_TOKEN),
+    COMPARISON_NOT_EQUAL_OPERATOR(Operator.ComparisonNotEqualOperator.class, Operator.ComparisonNotEqualOperator::new, Operator.COMPARISON_NOT_EQUAL_OPERATOR_TOKEN),
+    ARITHMETIC_PLUS_OPERATOR(Operator.ArithmeticPlusOperator.class, Operator.ArithmeticPlusOperator::new, Operator.ARITHMETIC_PLUS_OPERATOR_TOKEN),
+    ARITHMETIC_MINUS_OPERATOR(Operator.ArithmeticMinusOperator.class, Operator.ArithmeticMinusOperator::new, Operator.ARITHMETIC_MINUS_OPERATOR_TOKEN),
+    ARITHMETIC_MULTIPLICATION_OPERATOR(Operator.ArithmeticMultiplicationOperator.class, Operator.ArithmeticMultiplicationOperator::new, Operator.ARITHMETIC_MULTIPLICATION_OPERATOR_TOKEN),
+    ARITHMETIC_DIVISION_OPERATOR(Operator.ArithmeticDivisionOperator.class, Operator.ArithmeticDivisionOperator::new, Operator.ARITHMETIC_DIVISION_OPERATOR_TOKEN),
+    ARROW_OPERATOR(Operator.ArrowOperator.class, Operator.ArrowOperator::new, Operator.ARROW_OPERATOR_TOKEN),
+    RANGE_OPERATOR(Operator.RangeOperator.class, Operator.RangeOperator::new, Operator.RANGE_OPERATOR_TOKEN),
+    OPENING_PARENTHESIS_SEPARATOR(Separator.OpeningParenthesisSeparator.class, Separator.OpeningParenthesisSeparator::new, Separator.OPENING_PARENTHESIS_SEPARATOR_TOKEN),
+    CLOSING_PARENTHESIS_SEPARATOR(Separator.ClosingParenthesisSeparator.class, Separator.ClosingParenthesisSeparator::new, Separator.CLOSING_PARENTHESIS_SEPARATOR_TOKEN),
+    OPENING_BRACKET_SEPARATOR(Separator.OpeningBracketSeparator.class, Separator.OpeningBracketSeparator::new, Separator.OPENING_BRACKET_SEPARATOR_TOKEN),
+    CLOSING_BRACKET_SEPARATOR(Separator.ClosingBracketSeparator.class, Separator.ClosingBracketSeparator::new, Separator.CLOSING_BRACKET_SEPARATOR_TOKEN),
+    OPENING_CURLY_BRACKET_SEPARATOR(Separator.OpeningCurlyBracketSeparator.class, Separator.OpeningCurlyBracketSeparator::new, Separator.OPENING_CURLY_BRACKET_SEPARATOR_TOKEN),
+    CLOSING_CURLY_BRACKET_SEPARATOR(Separator.ClosingCurlyBracketSeparator.class, Separator.ClosingCurlyBracketSeparator::new, Separator.CLOSING_CURLY_BRACKET_SEPARATOR_TOKEN),
+    SEMICOLON_SEPARATOR(Separator.SemicolonSeparator.class, Separator.SemicolonSeparator::new, Separator.SEMICOLON_SEPARATOR_TOKEN),
+    COMMA_SEPARATOR(Separator.CommaSeparator.class, Separator.CommaSeparator::new, Separator.COMMA_SEPARATOR_TOKEN),
+    PERIOD_SEPARATOR(Separator.PeriodSeparator.class, Separator.PeriodSeparator::new, Separator.PERIOD_SEPARATOR_TOKEN),
+    WHITE_SPACE_SEPARATOR(Separator.WhiteSpaceSeparator.class, Separator.WhiteSpaceSeparator::new, Separator.WHITE_SPACE_SEPARATOR_TOKEN),
+    TAB_SPACE_SEPARATOR(Separator.TabSpaceSeparator.class, Separator.TabSpaceSeparator::new, Separator.TAB_SPACE_SEPARATOR_TOKEN),
+    NEW_LINE_SEPARATOR(Separator.NewLineSeparator.class, Separator.NewLineSeparator::new, Separator.NEW_LINE_SEPARATOR_TOKEN),
+    WINDOWS_NEW_LINE_SEPARATOR(Separator.WindowsNewLineSeparator.class, Separator.WindowsNewLineSeparator::new, Separator.WINDOWS_NEW_LINE_SEPARATOR_TOKEN),
+    INTEGER_LITERAL(Literal.IntegerLiteral.class, Literal.IntegerLiteral::new, null),
+    REAL_LITERAL(Literal.RealLiteral.class, Literal.RealLiteral::new, null),
+    STRING_LITERAL(Literal.StringLiteral.class, Literal.StringLiteral::new, null),
+    EMPTY_LITERAL(Literal.EmptyLiteral.class, Literal.EmptyLiteral::new, Literal.EMPTY_LITERAL_TOKEN),
+    IDENTIFIER(Identifier.class, Identifier::getIdentifier, null),
+    ERROR(ErrorToken.class, ErrorToken::new, null);
+
+    private static final TokenKind[] values = values();
+    private static final ClassValue<TokenKind> byTokenClass = new ClassValue<>() {
+        @Override
+        protected TokenKind computeValue(Class<?> type) {
+            for (TokenKind kind : values) {
+                if (kind.tokenClass == type) {
+                    return kind;
+                }
+            }
+            return null;
+        }
+    };
+    // Fixed-text kinds by the first character of their text, in the order Token.tokenize resolves ambiguous text.
+    private static final TokenKind[][] fixedTextByFirstChar = buildFixedTextTable();
+
+    private final Class<? extends Token> tokenClass;
+    private final Factory factory;
+    private final String text;
+
+    TokenKind(Class<? extends Token> tokenClass, Factory factory, String text) {
+        this.tokenClass = tokenClass;
+        this.factory = factory;
+        this.text = text;
+    }
+
+    private static TokenKind[][] buildFixedTextTable() {
+        var table = new TokenKind[128][];
+        for (var group : List.of(Separator.class, Operator.class, Keyword.class, Literal.class)) {
+            for (TokenKind kind : values) {
+                if (kind.text == null || !group.isAssignableFrom(kind.tokenClass)) {
+                    continue;
+                }
+                char first = kind.text.charAt(0);
+                var candidates = table[first] == null ? new TokenKind[0] : table[first];
+                candidates = Arrays.copyOf(candidates, candidates.length + 1);
+                candidates[candidates.length - 1] = kind;
+                table[first] = candidates;
+            }
+        }
+        return table;
+    }
+
+    public static TokenKind of(Token token) {
+        return of(token.getClass());
+    }
+
+    public static TokenKind of(Class<?> tokenClass) {
+        var kind = byTokenClass.get(tokenClass);
+        if (kind == null) {
+            throw new IllegalArgumentException("Unknown token class: " + tokenClass.getName());
+        }
+        return kind;
+    }
+
+    public static TokenKind fromOrdinal(int ordinal) {
+        return values[ordinal];
+    }
+
+    /**
+     * Finds the kind whose canonical text equals the given text. When the text belongs to several kinds
+     * (e.g. {@code is}), the kind chosen by {@link Token#tokenize} is returned.
+     *
+     * @param text - Scanned text, not necessarily a String
+     * @return Fixed-text kind, or {@code null} if the text is a literal, an identifier or unknown.
+     */
+    public static TokenKind forFixedText(CharSequence text) {
+        if (text.length() == 0 || text.charAt(0) >= fixedTextByFirstChar.length) {
+            return null;
+        }
+        var candidates = fixedTextByFirstChar[text.charAt(0)];
+        if (candidates == null) {
+            return null;
+        }
+        for (TokenKind kind : candidates) {
+            if (kind.text.contentEquals(text)) {
+                return kind;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Same as {@link #forFixedText(CharSequence)} for a single character.
+     */
+    public static TokenKind forFixedText(char text) {
+        if (text >= fixedTextByFirstChar.length || fixedTextByFirstChar[text] == null) {
+            return null;
+        }
+        for (TokenKind kind : fixedTextByFirstChar[text]) {
+            if (kind.text.length() == 1) {
+                return kind;
+            }
+        }
+        return null;
+    }
+
+    public Class<? extends Token> getTokenClass() {
+        return this.tokenClass;
+    }
+
+    /**
+     * @return Canonical text of this kind, or {@code null} if tokens of this kind have varying text.
+     */
+    public String getText() {
+        return this.text;
+    }
+
+    public boolean hasFixedText() {
+        return this.text != null;
+    }
+
+    /**
+     * Creates the token instance of this kind.
+     *
+     * @param token  - String containing token
+     * @param line   - Line number of the token occurrence
+     * @param column - Column number of the token's first character occurrence
+     * @return Instance of the token class of this kind.
+     */
+    public Token create(String token, int line, int column) {
+        return this.factory.create(token, line, column);
+    }
+
+    /**
+     * Creates the token instance of this fixed-text kind, sharing the canonical text.
+     *
+     * @param line   - Line number of the token occurrence
+     * @param column - Column number of the token's first character occurrence
+     * @return Instance of the token class of this kind.
+     */
+    public Token create(int line, int column) {
+        return this.factory.create(this.text, line, column);
+    }
+
+    @FunctionalInterface
+    private interface Factory {
+        Token create(String token, int line, int column);
+    }
+}
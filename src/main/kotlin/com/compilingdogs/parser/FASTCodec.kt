@@ -0,0 +1,275 @@
+package com.compilingdogs.parser
+
+import com.compilingdogs.parser.ast.FASTNode
+import tokens.Token
+import tokens.TokenKind
+import java.io.*
+import java.lang.reflect.Constructor
+import java.lang.reflect.Field
+import java.lang.reflect.Modifier
+
+
+/**
+ * Compact binary form of FAST trees, used by [ProgramCache] to keep parsed programs and to store them on disk.
+ *
+ * A tree is written depth-first. A node is its class, written by name the first time it occurs in the tree and by
+ * number afterwards, followed by the values of its fields. Tokens are written as their kind, their text unless the
+ * kind has a fixed one, and their position. Decoding builds a new tree, sharing nothing with the encoded one.
+ *
+ * As the fields are written by position and the kinds by ordinal, the header holds a fingerprint of the token kinds,
+ * and the name of a class is followed by a fingerprint of its fields: their names and types. Decoding fails when
+ * either does not match the classes loaded now, so a tree stored before a FAST node class changed is not misread.
+ *
+ * Every FAST node but [FASTToken] must have a constructor without arguments, as the ones that grammar nodes are mapped
+ * to do, and fields of nodes, tokens, lists of them, strings, numbers and booleans.
+ */
+object FASTCodec {
+    // "FAST"
+    private const val MAGIC = 0x46415354
+    // Change whenever the encoding changes, so that trees stored by older versions are ignored. Changes of the FAST
+    // node classes and of the token kinds are caught by their fingerprints.
+    const val VERSION = 2
+
+    private const val NULL = 0
+    private const val NODE = 1
+    private const val TOKEN = 2
+    private const val LIST = 3
+    private const val INT = 4
+    private const val LONG = 5
+    private const val FLOAT = 6
+    private const val DOUBLE = 7
+    private const val STRING = 8
+    private const val BOOLEAN = 9
+
+    private class Layout(val constructor: Constructor<*>?, val fields: List<Field>) {
+        val fingerprint = fields.joinToString(";") { "${it.declaringClass.name}.${it.name}:${it.genericType.typeName}" }
+            .hashCode()
+    }
+
+    private val tokenKindsFingerprint = TokenKind.values().joinToString(";") { it.name }.hashCode()
+
+    private val layouts = object : ClassValue<Layout>() {
+        override fun computeValue(type: Class<*>): Layout {
+            if (type == FASTToken::class.java)
+                return Layout(null, listOf())
+
+            // Fields of the superclasses first, those of one class by name, so that the order does not depend on the JVM
+            val fields = mutableListOf<Field>()
+            var current: Class<*>? = type
+            while (current != null && current != FASTNode::class.java) {
+                fields.addAll(0, current.declaredFields
+                    .filter { !Modifier.isStatic(it.modifiers) && !Modifier.isTransient(it.modifiers) && !it.isSynthetic }
+                    .sortedBy { it.name })
+                current = current.superclass
+            }
+            fields.forEach { it.isAccessible = true }
+
+            val constructor = type.getDeclaredConstructor().also { it.isAccessible = true }
+            return Layout(constructor, fields)
+        }
+    }
+
+    fun encode(tree: FASTNode): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        Writer(DataOutputStream(bytes)).run {
+            out.writeInt(MAGIC)
+            out.writeInt(VERSION)
+            out.writeInt(tokenKindsFingerprint)
+            writeNode(tree)
+            out.flush()
+        }
+        return bytes.toByteArray()
+    }
+
+    /**
+     * @throws IOException if [bytes] are not a tree encoded by this version of the codec, with the FAST node classes
+     * and token kinds loaded now.
+     */
+    @Throws(IOException::class)
+    fun decode(bytes: ByteArray): FASTNode {
+        val input = DataInputStream(ByteArrayInputStream(bytes))
+        if (input.readInt() != MAGIC)
+            throw IOException("Not an encoded FAST tree")
+        val version = input.readInt()
+        if (version != VERSION)
+            throw IOException("FAST tree encoded by version $version, expected $VERSION")
+        if (input.readInt() != tokenKindsFingerprint)
+            throw IOException("The token kinds changed since the FAST tree was encoded")
+        return Reader(input).readNode()
+    }
+
+    private class Writer(val out: DataOutputStream) {
+        private val classes = HashMap<Class<*>, Int>()
+
+        fun writeNode(node: FASTNode) {
+            val type = node.javaClass
+            val known = classes[type]
+            if (known != null) {
+                writeVarInt(known)
+            } else {
+                classes[type] = classes.size + 1
+                writeVarInt(0)
+                writeString(type.name)
+                out.writeInt(layouts.get(type).fingerprint)
+            }
+
+            if (node is FASTToken<*>) {
+                writeToken(node.token)
+                return
+            }
+            for (field in layouts.get(type).fields)
+                writeValue(field.get(node))
+        }
+
+        private fun writeValue(value: Any?) {
+            when (value) {
+                null -> out.writeByte(NULL)
+                is FASTNode -> {
+                    out.writeByte(NODE)
+                    writeNode(value)
+                }
+                is Token -> {
+                    out.writeByte(TOKEN)
+                    writeToken(value)
+                }
+                is List<*> -> {
+                    out.writeByte(LIST)
+                    writeVarInt(value.size)
+                    value.forEach { writeValue(it) }
+                }
+                is Int -> {
+                    out.writeByte(INT)
+                    writeVarInt((value shl 1) xor (value shr 31))
+                }
+                is Long -> {
+                    out.writeByte(LONG)
+                    out.writeLong(value)
+                }
+                is Float -> {
+                    out.writeByte(FLOAT)
+                    out.writeFloat(value)
+                }
+                is Double -> {
+                    out.writeByte(DOUBLE)
+                    out.writeDouble(value)
+                }
+                is String -> {
+                    out.writeByte(STRING)
+                    writeString(value)
+                }
+                is Boolean -> {
+                    out.writeByte(BOOLEAN)
+                    out.writeBoolean(value)
+                }
+                else -> throw IllegalArgumentException("Cannot encode a value of type ${value.javaClass.name}")
+            }
+        }
+
+        private fun writeToken(token: Token) {
+            val kind = token.kind
+            writeVarInt(kind.ordinal)
+            if (!kind.hasFixedText())
+                writeString(token.token)
+            writeVarInt(token.line)
+            writeVarInt(token.column)
+            writeVarInt(token.offset)
+        }
+
+        private fun writeString(value: String) {
+            val bytes = value.toByteArray(Charsets.UTF_8)
+            writeVarInt(bytes.size)
+            out.write(bytes)
+        }
+
+        // Unsigned LEB128, as most numbers in a tree are small
+        private fun writeVarInt(value: Int) {
+            var rest = value
+            while (rest and 0x7F.inv() != 0) {
+                out.writeByte((rest and 0x7F) or 0x80)
+                rest = rest ushr 7
+            }
+            out.writeByte(rest)
+        }
+    }
+
+    private class Reader(val input: DataInputStream) {
+        private val classes = mutableListOf<Class<*>>()
+
+        fun readNode(): FASTNode {
+            val known = readVarInt()
+            val type =
+                if (known != 0)
+                    classes[known - 1]
+                else
+                    readClass().also { classes.add(it) }
+
+            if (type == FASTToken::class.java)
+                return FASTToken(readToken())
+
+            val layout = layouts.get(type)
+            val node = layout.constructor!!.newInstance() as FASTNode
+            for (field in layout.fields)
+                field.set(node, readValue())
+            return node
+        }
+
+        private fun readValue(): Any? = when (val tag = input.readByte().toInt()) {
+            NULL -> null
+            NODE -> readNode()
+            TOKEN -> readToken()
+            LIST -> {
+                val size = readVarInt()
+                MutableList(size) { readValue() }
+            }
+            INT -> readVarInt().let { (it ushr 1) xor -(it and 1) }
+            LONG -> input.readLong()
+            FLOAT -> input.readFloat()
+            DOUBLE -> input.readDouble()
+            STRING -> readString()
+            BOOLEAN -> input.readBoolean()
+            else -> throw IOException("Unknown value tag $tag")
+        }
+
+        private fun readClass(): Class<*> {
+            val name = readString()
+            val type = try {
+                Class.forName(name, false, FASTNode::class.java.classLoader)
+            } catch (e: ClassNotFoundException) {
+                throw IOException("$name no longer exists", e)
+            }
+            if (!FASTNode::class.java.isAssignableFrom(type))
+                throw IOException("$name is not a FAST node")
+            if (input.readInt() != layouts.get(type).fingerprint)
+                throw IOException("The fields of $name changed since the FAST tree was encoded")
+            return type
+        }
+
+        private fun readToken(): Token {
+            val kind = TokenKind.fromOrdinal(readVarInt())
+            val text = if (kind.hasFixedText()) null else readString()
+            val line = readVarInt()
+            val column = readVarInt()
+            val token = if (text == null) kind.create(line, column) else kind.create(text, line, column)
+            token.offset = readVarInt()
+            return token
+        }
+
+        private fun readString(): String {
+            val bytes = ByteArray(readVarInt())
+            input.readFully(bytes)
+            return String(bytes, Charsets.UTF_8)
+        }
+
+        private fun readVarInt(): Int {
+            var value = 0
+            var shift = 0
+            while (true) {
+                val byte = input.readUnsignedByte()
+                value = value or ((byte and 0x7F) shl shift)
+                if (byte and 0x80 == 0)
+                    return value
+                shift += 7
+            }
+        }
+    }
+}
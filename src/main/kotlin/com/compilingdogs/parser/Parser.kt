@@ -15,19 +15,19 @@ val identifier = TokenNode(Identifier::class.java, true)
  * Keywords
  */
 val varKeyword = TokenNode(Keyword.VarKeyword::class.java)
-val int = TokenNode(Keyword.IntKeyword::class.java, true).apply { mapTo<FASTTypeIndicatorInt>() }
-var real = TokenNode(Keyword.RealKeyword::class.java, true).apply { mapTo<FASTTypeIndicatorReal>() }
-var bool = TokenNode(Keyword.BoolKeyword::class.java, true).apply { mapTo<FASTTypeIndicatorBool>() }
+val int = TokenNode(Keyword.IntKeyword::class.java, true).apply { mapTo { FASTTypeIndicatorInt() } }
+var real = TokenNode(Keyword.RealKeyword::class.java, true).apply { mapTo { FASTTypeIndicatorReal() } }
+var bool = TokenNode(Keyword.BoolKeyword::class.java, true).apply { mapTo { FASTTypeIndicatorBool() } }
 val string =
-    TokenNode(Keyword.StringKeyword::class.java, true).apply { mapTo<FASTTypeIndicatorString>() }
+    TokenNode(Keyword.StringKeyword::class.java, true).apply { mapTo { FASTTypeIndicatorString() } }
 var empty =
-    TokenNode(Keyword.EmptyKeyword::class.java, true).apply { mapTo<FASTTypeIndicatorEmpty>() }
-var func = TokenNode(Keyword.FuncKeyword::class.java, true).apply { mapTo<FASTTypeIndicatorFunc>() }
-val readInt = TokenNode(Keyword.ReadIntKeyword::class.java, true).apply { mapTo<FASTReadIntCall>() }
+    TokenNode(Keyword.EmptyKeyword::class.java, true).apply { mapTo { FASTTypeIndicatorEmpty() } }
+var func = TokenNode(Keyword.FuncKeyword::class.java, true).apply { mapTo { FASTTypeIndicatorFunc() } }
+val readInt = TokenNode(Keyword.ReadIntKeyword::class.java, true).apply { mapTo { FASTReadIntCall() } }
 val readReal =
-    TokenNode(Keyword.ReadRealKeyword::class.java, true).apply { mapTo<FASTReadRealCall>() }
+    TokenNode(Keyword.ReadRealKeyword::class.java, true).apply { mapTo { FASTReadRealCall() } }
 val readString =
-    TokenNode(Keyword.ReadStringKeyword::class.java, true).apply { mapTo<FASTReadStringCall>() }
+    TokenNode(Keyword.ReadStringKeyword::class.java, true).apply { mapTo { FASTReadStringCall() } }
 val end = TokenNode(Keyword.EndKeyword::class.java)
 val print = TokenNode(Keyword.PrintKeyword::class.java)
 val returnKeyword = TokenNode(Keyword.ReturnKeyword::class.java)
@@ -79,15 +79,15 @@ val period = TokenNode(Separator.PeriodSeparator::class.java)
  * Literals
  */
 val integerLiteral =
-    TokenNode(Literal.IntegerLiteral::class.java, true).apply { mapTo<FASTIntegerLiteral>() }
+    TokenNode(Literal.IntegerLiteral::class.java, true).apply { mapToken { FASTIntegerLiteral(it) } }
 val realLiteral =
-    TokenNode(Literal.RealLiteral::class.java, true).apply { mapTo<FASTRealLiteral>() }
+    TokenNode(Literal.RealLiteral::class.java, true).apply { mapToken { FASTRealLiteral(it) } }
 val stringLiteral =
-    TokenNode(Literal.StringLiteral::class.java, true).apply { mapTo<FASTStringLiteral>() }
+    TokenNode(Literal.StringLiteral::class.java, true).apply { mapToken { FASTStringLiteral(it) } }
 val trueKeyword =
-    TokenNode(Keyword.TrueKeyword::class.java, true).apply { mapTo<FASTBooleanLiteral>() }
+    TokenNode(Keyword.TrueKeyword::class.java, true).apply { mapToken { FASTBooleanLiteral(it) } }
 val falseKeyword =
-    TokenNode(Keyword.FalseKeyword::class.java, true).apply { mapTo<FASTBooleanLiteral>() }
+    TokenNode(Keyword.FalseKeyword::class.java, true).apply { mapToken { FASTBooleanLiteral(it) } }
 
 
 /**
@@ -116,14 +116,14 @@ val referencePath = any("referencePath") {
 }
 
 val simpleReference = concat("simpleReference") {
-    mapTo<FASTReference>()
+    mapTo { FASTReference() }
     +identifier
 
 //    +referencePath
 }
 
 val arrayReference = concat("arrayReference") {
-    mapTo<FASTArrayReference>()
+    mapTo { FASTArrayReference() }
 
     +referencePath
     +openBracket
@@ -145,13 +145,13 @@ val typeIndicator = any("typeIndicator") {
     +empty
     +func
     +concat("arrayTypeIndicator") {
-        mapTo<FASTTypeIndicatorArray>()
+        mapTo { FASTTypeIndicatorArray() }
 
         +openBracket
         +closeBracket
     }
     +concat("tupleTypeIndicator") {
-        mapTo<FASTTypeIndicatorTuple>()
+        mapTo { FASTTypeIndicatorTuple() }
 
         +openBrace
         +closeBrace
@@ -160,7 +160,7 @@ val typeIndicator = any("typeIndicator") {
 
 val primary = any("primary") {
     +concat("functionCall") {
-        mapTo<FASTFunctionCall>()
+        mapTo { FASTFunctionCall() }
 
         +reference
         +openParenthesis
@@ -191,7 +191,7 @@ val primary = any("primary") {
 
 val unary = any("unary") {
     +concat("typeCheckOperator") {
-        mapTo<FASTTypeCheckOperator>()
+        mapTo { FASTTypeCheckOperator() }
 
         +reference
         +isOp
@@ -201,19 +201,19 @@ val unary = any("unary") {
     +primary
 
     +concat("unaryPrimaryPlus") {
-        mapTo<FASTPositiveOperator>()
+        mapTo { FASTPositiveOperator() }
 
         +plus
         +primary
     }
     +concat("unaryPrimaryMinus") {
-        mapTo<FASTNegativeOperator>()
+        mapTo { FASTNegativeOperator() }
 
         +minus
         +primary
     }
     +concat("unaryPrimaryNot") {
-        mapTo<FASTNotOperator>()
+        mapTo { FASTNotOperator() }
 
         +not
         +primary
@@ -221,190 +221,33 @@ val unary = any("unary") {
 }
 
 
-var termMult = concat("termMult") {
-    mapTo<FASTMultiplyOperator>()
-
-    +unary
-    +repeat("termMultRepeat") {
-        +concat("termMultConcat") {
-            +mult
-//            +term // this is added separately to break circular dependency cycle
-        }
-    }
-}
-
-val termDiv = concat("termDiv") {
-    mapTo<FASTDivideOperator>()
-
-    +unary
-    +repeat("termDivRepeat") {
-        +concat("termDivConcat") {
-            +div
-//            +term // this is added separately to break circular dependency cycle
-        }
-    }
-}
-
-val term = any("term") {
-    +termMult
-    +termDiv
-}
-
-
-val factorPlus = concat("factorPlus") {
-    mapTo<FASTAddOperator>()
-
-    +term
-    +repeat("factorRepeat") {
-        +concat("factorConcat") {
-            +plus
-//            +factor // this is added separately to break circular dependency cycle
-        }
-    }
-}
-
-val factorMinus = concat("factorMinus") {
-    mapTo<FASTSubtractOperator>()
-
-    +term
-    +repeat("factorRepeat") {
-        +concat("factorConcat") {
-            +minus
-//            +factor // this is added separately to break circular dependency cycle
-        }
-    }
-}
-
-val factor = any("factor") {
-    +factorPlus
-    +factorMinus
-}
-
-val lessRelation = concat("lessRelation") {
-    mapTo<FASTLessOperator>()
-
-    +factor
-    +maybe("relationMaybe") {
-        concat("relationConcat") {
-            +less
-//            +relation // this is added separately to break circular dependency cycle
-        }
-    }
-}
-
-val lessOrEqualRelation = concat("lessOrEqualRelation") {
-    mapTo<FASTLessEqualOperator>()
-
-    +factor
-    +maybe("relationMaybe") {
-        concat("relationConcat") {
-            +lessOrEqual
-//            +relation // this is added separately to break circular dependency cycle
-        }
-    }
-}
-
-val equalRelation = concat("equalRelation") {
-    mapTo<FASTEqualOperator>()
-
-    +factor
-    +maybe("relationMaybe") {
-        concat("relationConcat") {
-            +equal
-//            +relation // this is added separately to break circular dependency cycle
-        }
-    }
-}
-
-val notEqualRelation = concat("notEqualRelation") {
-    mapTo<FASTNotEqualOperator>()
-
-    +factor
-    +maybe("relationMaybe") {
-        concat("relationConcat") {
-            +notEqual
-//            +relation // this is added separately to break circular dependency cycle
-        }
-    }
-}
-
-val greaterRelation = concat("greaterRelation") {
-    mapTo<FASTGreaterOperator>()
-
-    +factor
-    +maybe("relationMaybe") {
-        concat("relationConcat") {
-            +greater
-//            +relation // this is added separately to break circular dependency cycle
-        }
+val expression = operators("expression") {
+    level {
+        binary(or) { FASTOrOperator() }
+        binary(and) { FASTAndOperator() }
+        binary(xor) { FASTXorOperator() }
     }
-}
-
-val greaterOrEqualRelation = concat("greaterOrEqualRelation") {
-    mapTo<FASTGreaterEqualOperator>()
-
-    +factor
-    +maybe("relationMaybe") {
-        concat("relationConcat") {
-            +greaterOrEqual
-//            +relation // this is added separately to break circular dependency cycle
-        }
+    level {
+        binary(less) { FASTLessOperator() }
+        binary(lessOrEqual) { FASTLessEqualOperator() }
+        binary(equal) { FASTEqualOperator() }
+        binary(notEqual) { FASTNotEqualOperator() }
+        binary(greater) { FASTGreaterOperator() }
+        binary(greaterOrEqual) { FASTGreaterEqualOperator() }
     }
-}
-
-val relation = any("relation") {
-    +lessRelation
-    +lessOrEqualRelation
-    +equalRelation
-    +notEqualRelation
-    +greaterRelation
-    +greaterOrEqualRelation
-}
-
-val expressionOr = concat("expressionOr") {
-    mapTo<FASTOrOperator>()
-
-    +relation
-    +repeat("expressionRepeat") {
-        +concat("expressionRepeatConcat") {
-            +or
-//            +expression // this is added separately to break circular dependency cycle
-        }
+    level {
+        binary(plus) { FASTAddOperator() }
+        binary(minus) { FASTSubtractOperator() }
     }
-}
-
-val expressionAnd = concat("expressionAnd") {
-    mapTo<FASTAndOperator>()
-
-    +relation
-    +repeat("expressionRepeat") {
-        +concat("expressionRepeatConcat") {
-            +and
-//            +expression // this is added separately to break circular dependency cycle
-        }
+    level {
+        binary(mult) { FASTMultiplyOperator() }
+        binary(div) { FASTDivideOperator() }
     }
-}
-
-val expressionXor = concat("expressionXor") {
-    mapTo<FASTXorOperator>()
-
-    +relation
-    +repeat("expressionRepeat") {
-        +concat("expressionRepeatConcat") {
-            +xor
-//            +expression // this is added separately to break circular dependency cycle
-        }
-    }
-}
-
-val expression = any("expression") {
-    +expressionOr
-    +expressionAnd
-    +expressionXor
+    operand = unary
 }
 
 val varDefinition = concat("varDefinition") {
-    mapTo<FASTVarDefinition>()
+    mapTo { FASTVarDefinition() }
 
     +identifier
     +maybe("maybeVarValue") {
@@ -416,7 +259,7 @@ val varDefinition = concat("varDefinition") {
 }
 
 val declaration = concat("declaration") {
-    mapTo<FASTDeclarationStatement>()
+    mapTo { FASTDeclarationStatement() }
 
     +varKeyword
     +varDefinition
@@ -429,7 +272,7 @@ val declaration = concat("declaration") {
 //    }
 }
 val assignmentStatement = concat("assignmentStatement") {
-    mapTo<FASTAssignmentStatement>()
+    mapTo { FASTAssignmentStatement() }
 
     +reference
     +assignmentOperator
@@ -440,7 +283,7 @@ val controlStructure = any("controlStructure") {
 //    +loopControlStructure // this is added separately to break circular dependency cycle
 }
 val printStatement = concat("printStatement") {
-    mapTo<FASTPrintStatement>()
+    mapTo { FASTPrintStatement() }
 
     +print
     +expression
@@ -450,7 +293,7 @@ val printStatement = concat("printStatement") {
     }
 }
 val returnStatement = concat("returnStatement") {
-    mapTo<FASTReturnStatement>()
+    mapTo { FASTReturnStatement() }
 
     +returnKeyword
     +maybe("returnStatementMaybe") {
@@ -467,7 +310,7 @@ val statement = any("statement") {
 
 
 val body = repeat("body") {
-    mapTo<FASTBody>()
+    mapTo { FASTBody() }
 
     +concat("statement+separator") {
         +repeat("repeatSeparator") {
@@ -487,7 +330,7 @@ val body = repeat("body") {
 }
 
 val program = repeat("program") {
-    mapTo<FASTProgram>()
+    mapTo { FASTProgram() }
 
     +concat("statement+separator") {
         +repeat("repeatSeparator") {
@@ -508,7 +351,7 @@ val program = repeat("program") {
 
 
 val ifControlStructure = concat("ifControlStructure") {
-    mapTo<FASTIfStructure>()
+    mapTo { FASTIfStructure() }
 
     +ifKeyword
     +expression
@@ -525,7 +368,7 @@ val ifControlStructure = concat("ifControlStructure") {
 
 
 val forControlStructure = concat("forControlStructure") {
-    mapTo<FASTForLoop>()
+    mapTo { FASTForLoop() }
 
     +forKeyword
     +any("forControlStructureAny") {
@@ -552,7 +395,7 @@ val forControlStructure = concat("forControlStructure") {
 }
 
 val whileControlStructure = concat("whileControlStructure") {
-    mapTo<FASTWhileLoop>()
+    mapTo { FASTWhileLoop() }
 
     +whileKeyword
     +expression
@@ -577,7 +420,7 @@ val funcBody = any("funcBody") {
         +end
     }
     +concat("funcBodyConcat2") {
-        mapTo<FASTBody>()
+        mapTo { FASTBody() }
 
         +arrow
         // that was expression... somewhen in the past :D
@@ -586,7 +429,7 @@ val funcBody = any("funcBody") {
 }
 
 val tupleElement = concat("tupleElement") {
-    mapTo<FASTTupleElement>()
+    mapTo { FASTTupleElement() }
 
     +maybe("tupleElementMaybe") {
         concat("tupleElementConcat") {
@@ -597,7 +440,7 @@ val tupleElement = concat("tupleElement") {
     +expression
 }
 val tupleLiteral = concat("tupleLiteral") {
-    mapTo<FASTTupleLiteral>()
+    mapTo { FASTTupleLiteral() }
 
     +openBrace
     +maybe("tupleLiteralMaybe") {
@@ -613,7 +456,7 @@ val tupleLiteral = concat("tupleLiteral") {
 }
 
 val arrayLiteral = concat("arrayLiteral") {
-    mapTo<FASTArrayLiteral>()
+    mapTo { FASTArrayLiteral() }
 
     +openBracket
     +maybe("maybeArrayElements") {
@@ -629,7 +472,7 @@ val arrayLiteral = concat("arrayLiteral") {
 }
 
 val functionLiteral = concat("functionLiteral") {
-    mapTo<FASTFunctionLiteral>()
+    mapTo { FASTFunctionLiteral() }
 
     +func
     +maybe("functionLiteralMaybe") {
@@ -647,8 +490,19 @@ val functionLiteral = concat("functionLiteral") {
     +funcBody
 }
 
-var initialized = false
-fun initialize() {
+// Completes and compiles the grammar on the first parse. Adding the circular children twice would corrupt the grammar,
+// so threads that parse for the first time at the same time wait for one of them to do it.
+private val grammar = lazy {
+    initialize()
+    compileGrammar(program)
+}
+
+val initialized: Boolean
+    get() = grammar.isInitialized()
+val compiledProgram: CompiledGrammar
+    get() = grammar.value
+
+private fun initialize() {
     literal.apply { +arrayLiteral }
     literal.apply { +tupleLiteral }
     literal.apply { +functionLiteral }
@@ -667,31 +521,11 @@ fun initialize() {
     )
     (primary["groupedExpression"] as ConcatenationNode).children.add(1, expression)
 
-    (termMult["termMultRepeat"]!!["termMultConcat"] as ConcatenationNode).children.add(term)
-    (termDiv["termDivRepeat"]!!["termDivConcat"] as ConcatenationNode).children.add(term)
-
-    (factorPlus["factorRepeat"]!!["factorConcat"] as ConcatenationNode).children.add(term)
-    (factorMinus["factorRepeat"]!!["factorConcat"] as ConcatenationNode).children.add(term)
-
-    (expressionOr["expressionRepeat"]!!["expressionRepeatConcat"]!! as ConcatenationNode).children.add(
-        expression
-    )
-    (expressionAnd["expressionRepeat"]!!["expressionRepeatConcat"]!! as ConcatenationNode).children.add(
-        expression
-    )
-    (expressionXor["expressionRepeat"]!!["expressionRepeatConcat"]!! as ConcatenationNode).children.add(
-        expression
-    )
-
-    (lessRelation["relationMaybe"]!!["relationConcat"]!! as ConcatenationNode).children.add(relation)
-    (lessOrEqualRelation["relationMaybe"]!!["relationConcat"]!! as ConcatenationNode).children.add(relation)
-    (notEqualRelation["relationMaybe"]!!["relationConcat"]!! as ConcatenationNode).children.add(relation)
-    (equalRelation["relationMaybe"]!!["relationConcat"]!! as ConcatenationNode).children.add(relation)
-    (greaterOrEqualRelation["relationMaybe"]!!["relationConcat"]!! as ConcatenationNode).children.add(relation)
-    (greaterRelation["relationMaybe"]!!["relationConcat"]!! as ConcatenationNode).children.add(relation)
-
     controlStructure.apply { +ifControlStructure }
     controlStructure.apply { +loopControlStructure }
+
+    // Only now is the grammar complete
+    analyzeGrammar(program)
 }
 
 fun main() {
@@ -718,13 +552,32 @@ fun runTest() {
     println("Elapsed time: ${time.toFloat() / 1000} seconds")
 }
 
-fun parse(tokens: List<Token>): FASTNode {
-    if (!initialized) {
-        initialize()
-        initialized = true
-    }
+fun parse(tokens: List<Token>): FASTNode = parse(tokens, ParserOptions())
+
+fun parse(tokens: List<Token>, options: ParserOptions): FASTNode {
+    if (!options.compiled)
+        return parse(matchContext(tokens, options))
 
-    val results = program.match(tokens, 0)
+    return compiledProgram.parse(tokens).first()
+}
+
+/**
+ * Creates the context a parse of [tokens] with [options] runs in. Parsing through [parse] with the context
+ * leaves its counters, e.g. [MatchContext.matchCalls], readable afterwards.
+ */
+fun matchContext(tokens: List<Token>, options: ParserOptions): MatchContext = MatchContext(
+    tokens,
+    options.memoizing,
+    options.alternationStrategy,
+    options.parallelThreshold,
+    options.predictive,
+    options.parallelPool
+)
+
+fun parse(context: MatchContext): FASTNode {
+    initializeOnce()
+
+    val results = program.match(0, 0, context)
     if (results.error != null)
         error(results.error)
 
@@ -732,3 +585,7 @@ fun parse(tokens: List<Token>): FASTNode {
 //    println()
     return results.result.first()
 }
+
+private fun initializeOnce() {
+    grammar.value
+}
@@ -0,0 +1,50 @@
+package com.compilingdogs.parser
+
+import com.compilingdogs.parser.ast.AlternationStrategy
+import java.util.concurrent.ForkJoinPool
+
+/**
+ * Options controlling how [parse] matches the grammar.
+ */
+class ParserOptions {
+    /**
+     * Keeps the result of every grammar node at every token position during a parse, so that no node is matched twice
+     * at the same position. Turns the backtracking over overlapping alternatives, e.g. the levels of an expression,
+     * from exponential into linear time, at the cost of memory for the stored results.
+     */
+    var memoizing: Boolean = true
+
+    /**
+     * How alternations try their variants. [AlternationStrategy.PARALLEL] splits the alternations with enough tokens
+     * left into tasks of [parallelPool], which only pays off for a single parse of a large program on an idle machine.
+     */
+    var alternationStrategy: AlternationStrategy = AlternationStrategy.SEQUENTIAL
+
+    /**
+     * The least number of tokens left from the position of an alternation for which it tries its variants in parallel
+     * with [AlternationStrategy.PARALLEL]. Alternations near the end of the tokens are not worth the tasks.
+     */
+    var parallelThreshold: Int = 1024
+
+    /**
+     * The pool that alternations try their variants on with [AlternationStrategy.PARALLEL]. Shared by default by all
+     * parses, but not with the rest of the process as the common fork-join pool is.
+     */
+    var parallelPool: ForkJoinPool = defaultParallelPool
+
+    /**
+     * Lets alternations and repetitions skip the children that cannot start with the current token, by the FIRST sets
+     * computed when the grammar is built. The parse tree stays the same, only fewer nodes are tried.
+     */
+    var predictive: Boolean = true
+
+    /**
+     * Matches the grammar compiled into flat tables when it is built, see [CompiledGrammar], instead of walking the
+     * grammar nodes. Builds the same tree. The compiled grammar always dispatches by the next tokens, keeps only the
+     * results it may need again and matches alternations sequentially, so none of the other options apply to it.
+     */
+    var compiled: Boolean = false
+}
+
+// Its threads are only started once a parse has tasks for them
+private val defaultParallelPool = ForkJoinPool(Runtime.getRuntime().availableProcessors())
@@ -0,0 +1,131 @@
+package com.compilingdogs.parser
+
+import com.compilingdogs.parser.ast.FASTNode
+import stages.CharArraySourceReader
+import stages.LexicalAnalyzer
+import java.io.File
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+
+
+/**
+ * Parses every distinct source once: maps the SHA-256 hash of a source to its parsed program, kept in the compact
+ * binary form of [FASTCodec]. Every [get] decodes a new tree, so executions never share FAST nodes.
+ *
+ * Holds at most [maxBytes] of encoded programs, evicting the least recently used ones. With a [directory], programs
+ * are also stored there, one file per hash, so that a new process skips lexing and parsing of sources parsed before.
+ * Files that cannot be read, e.g. written by another version of the codec or before a FAST node class changed, are
+ * parsed and stored again.
+ *
+ * Safe for use by several threads.
+ */
+class ProgramCache(
+    private val maxBytes: Long = 64L * 1024 * 1024,
+    private val directory: File? = null,
+    private val options: ParserOptions = ParserOptions()
+) {
+    // In access order, so that the first entry is the least recently used one
+    private val entries = LinkedHashMap<String, ByteArray>(16, 0.75f, true)
+    private var size = 0L
+
+    // Programs taken from memory or from the directory, and programs parsed.
+    var hits = 0L
+        @Synchronized get
+        private set
+    var misses = 0L
+        @Synchronized get
+        private set
+
+    init {
+        directory?.mkdirs()
+    }
+
+    /**
+     * @return a new tree of the program in [source], parsed or taken from the cache.
+     */
+    fun get(source: String): FASTNode {
+        val key = hash(source)
+
+        synchronized(this) {
+            entries[key]?.let {
+                hits++
+                return FASTCodec.decode(it)
+            }
+        }
+
+        val stored = load(key)
+        if (stored != null) {
+            put(key, stored.first)
+            return stored.second
+        }
+
+        // Parse outside of the lock, a slow parse must not hold up the hits
+        val tree = parse(LexicalAnalyzer.getInstance().tokenize(CharArraySourceReader(source)), options)
+        val encoded = FASTCodec.encode(tree)
+        synchronized(this) { misses++ }
+        put(key, encoded)
+        save(key, encoded)
+        return tree
+    }
+
+    @Synchronized
+    fun clear() {
+        entries.clear()
+        size = 0
+    }
+
+    // Number of bytes held by the encoded programs in memory.
+    val bytes: Long
+        @Synchronized get() = size
+
+    @Synchronized
+    private fun put(key: String, encoded: ByteArray) {
+        entries.put(key, encoded)?.let { size -= it.size }
+        size += encoded.size
+
+        val iterator = entries.values.iterator()
+        while (size > maxBytes && iterator.hasNext()) {
+            size -= iterator.next().size
+            iterator.remove()
+        }
+    }
+
+    // Reads the program of [key] from the directory, with its decoded tree.
+    private fun load(key: String): Pair<ByteArray, FASTNode>? {
+        val file = file(key) ?: return null
+        if (!file.isFile)
+            return null
+
+        return try {
+            val encoded = Files.readAllBytes(file.toPath())
+            val tree = FASTCodec.decode(encoded)
+            synchronized(this) { hits++ }
+            encoded to tree
+        } catch (e: Exception) {
+            // Unreadable, or the FAST node classes changed since it was written
+            null
+        }
+    }
+
+    private fun save(key: String, encoded: ByteArray) {
+        val file = file(key) ?: return
+        var temporary: File? = null
+        try {
+            // Write aside and move, so that a concurrent reader never sees half a file
+            temporary = File.createTempFile(key, ".tmp", directory)
+            Files.write(temporary.toPath(), encoded)
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+        } catch (e: IOException) {
+            // The directory only speeds up later processes, the program is cached in memory anyway
+            temporary?.delete()
+        }
+    }
+
+    private fun file(key: String): File? = directory?.let { File(it, "$key.fast") }
+
+    private fun hash(source: String): String =
+        MessageDigest.getInstance("SHA-256").digest(source.toByteArray(Charsets.UTF_8))
+            .joinToString("") { "%02x".format(it) }
+}
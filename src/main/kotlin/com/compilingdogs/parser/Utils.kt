@@ -18,6 +18,9 @@ const val blueColor = "\u001b[34m"
 // Repetition node
 const val magentaColor = "\u001b[35m"
 
+// Operator precedence node
+const val cyanColor = "\u001b[36m"
+
 // Only works for 0..99
 fun twoPlacesInt(i: Int): String {
     return if (i < 10)
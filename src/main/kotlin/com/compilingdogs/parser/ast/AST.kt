@@ -1,6 +1,8 @@
 package com.compilingdogs.parser.ast
 
-import tokens.Token
+import tokens.TokenKind
+import java.util.BitSet
+import java.util.concurrent.atomic.AtomicInteger
 
 /*
 * This package contains the EBNF framework to express your grammar in the DSL form for further automatic parsing.
@@ -16,9 +18,7 @@ val logFASTTokens = false
 
 
 // Function used to generate different kinds of nodes in DSL. See particular usages of this function below.
-inline fun <reified T : ASTNode> initialize(init: T.() -> Unit, name: String = ""): T {
-    // TODO: find another way for this (if possible)
-    val node = T::class.java.newInstance()
+fun <T : ASTNode> initialize(node: T, init: T.() -> Unit, name: String = ""): T {
     node.name = name
     node.init()
     return node
@@ -27,15 +27,16 @@ inline fun <reified T : ASTNode> initialize(init: T.() -> Unit, name: String = "
 
 data class ParsingError(val expected: String, val received: String)
 
-data class MatchResults(val result: List<FASTNode>, val remainingTokens: List<Token>, val error: ParsingError?)
+// [end] is the position after the last matched token, or the start position if nothing matched.
+data class MatchResults(val result: List<FASTNode>, val end: Int, val error: ParsingError?)
 
 
 // The base class for all AST nodes
 abstract class ASTNode(
     var name: String = "",
-    // Specifies the data structure that this node is attached to.
+    // Creates the data structure that this node is attached to.
     // While parsing, the particular values will be accumulated here.
-    var attachedTo: Class<FASTNode>? = null,
+    var attachedTo: (() -> FASTNode)? = null,
 //    var createCallback: ((FASTNode?) -> Unit)? = null,
 //    var successCallback: ((FASTNode?, FASTNode?) -> Unit)? = null,
 
@@ -45,19 +46,74 @@ abstract class ASTNode(
 
 //    var transformTokens: (List<Token>) -> List<Token> = { s -> s }
 ) {
-    abstract fun match(tokens: List<Token>, depth: Int): MatchResults
+    // Identifies the node in the memo of a [MatchContext].
+    val id: Int = nextId.getAndIncrement()
+
+    // Whether results of this node are worth keeping in the memo. Single tokens are cheaper to match again.
+    protected open val memoized: Boolean
+        get() = true
+
+    /**
+     * Matches this node against the tokens of the [context] from [position] on, reusing the result of an earlier
+     * match at the same position if the context memoizes results.
+     */
+    fun match(position: Int, depth: Int, context: MatchContext): MatchResults {
+        context.countMatch()
+        if (!context.memoizing || !memoized)
+            return matchTokens(position, depth, context)
+
+        context.lookup(this, position)?.let { return it }
+        val results = matchTokens(position, depth, context)
+        context.store(this, position, results)
+        return results
+    }
+
+    // Kinds of the tokens this node can start with, by ordinal, and whether it can match no tokens at all.
+    // Filled in by [analyzeGrammar], until then the node is assumed to start with anything.
+    internal var first: BitSet? = null
+    internal var nullable: Boolean = true
+
+    /**
+     * Tells from the kind of the first token alone whether this node can possibly match, so that alternations skip the
+     * variants that cannot. Null stands for the end of the tokens. Must not reject a token the node matches.
+     */
+    open fun canStartWith(kind: TokenKind?): Boolean {
+        val first = first ?: return true
+        return nullable || kind != null && first[kind.ordinal]
+    }
+
+    // Called by [analyzeGrammar] once the FIRST sets of all nodes are known.
+    internal open fun buildDispatch() {}
+
+    protected abstract fun matchTokens(position: Int, depth: Int, context: MatchContext): MatchResults
 
     abstract fun clone(): ASTNode
 
     abstract operator fun get(name: String): ASTNode?
 
-    inline fun <reified T : FASTNode> mapTo() {
-        attachedTo = T::class.java as Class<FASTNode>
+    /**
+     * Attaches this node to the FAST nodes made by [factory]. The factory is called once per successful match,
+     * after all children have matched, and the results of the children are consumed by the node it returns.
+     */
+    fun mapTo(factory: () -> FASTNode) {
+        attachedTo = factory
+    }
+
+    // Creates the attached FAST node and consumes [results] into it, or returns [results] as they are if this node is
+    // not attached to anything.
+    protected fun attach(results: List<FASTNode>): List<FASTNode> {
+        val fastNode = attachedTo?.invoke() ?: return results
+        results.forEach { node -> fastNode.consume(node) }
+        return listOf(fastNode)
+    }
+
+    companion object {
+        private val nextId = AtomicInteger()
     }
 }
 
 // DSL function to create an empty node. Can be used as a placeholder for not implemented AST nodes.
-fun node(name: String = "", init: ASTNode.() -> Unit): ASTNode = initialize(init, name)
+fun node(name: String = "", init: ASTNode.() -> Unit): ASTNode = initialize(ConcatenationNode(), init, name)
 
 
 // --------------------------------------------------------------------------------------------------------
@@ -4,8 +4,9 @@ import com.compilingdogs.parser.greenColor
 import com.compilingdogs.parser.indent
 import com.compilingdogs.parser.lightGray
 import com.compilingdogs.parser.noColor
-import tokens.Token
-import java.util.stream.Stream
+import tokens.TokenKind
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
 
 
 class AlternationNode(
@@ -14,63 +15,48 @@ class AlternationNode(
 
     operator fun ASTNode.unaryPlus() = variants.add(this)
 
-    override fun match(tokens: List<Token>, depth: Int): MatchResults {
+    // Variants that can start with a token, by the ordinal of its kind, and at the end of the tokens as the last entry.
+    private var dispatch: Array<List<ASTNode>>? = null
+
+    override fun buildDispatch() {
+        val kinds = TokenKind.values()
+        dispatch = Array(kinds.size + 1) { i ->
+            val kind = if (i < kinds.size) kinds[i] else null
+            variants.filter { it.canStartWith(kind) }
+        }
+    }
+
+    private fun candidates(kind: TokenKind?): List<ASTNode> {
+        val dispatch = dispatch ?: return variants.filter { it.canStartWith(kind) }
+        return dispatch[kind?.ordinal ?: dispatch.size - 1]
+    }
+
+    override fun matchTokens(position: Int, depth: Int, context: MatchContext): MatchResults {
         if (logNodeTraversal) {
             println("${indent(depth)}Matching AlternationNode $name")
-            println("${indent(depth + 1)}${lightGray}Tokens: ${tokens.joinToString(" ")}${noColor}")
+            println("${indent(depth + 1)}${lightGray}Tokens: ${context.describe(position)}${noColor}")
         }
 
-        // If this node contains its own mapped FASTNode, use it.
-        val fastNode = attachedTo?.newInstance()
-
         // Initialize result with empty cases error
-        var maxParsedResult = MatchResults(listOf(), tokens, ParsingError(name, "empty cases in AlternationNode"))
+        var maxParsedResult = MatchResults(listOf(), position, ParsingError(name, "empty cases in AlternationNode"))
 
         if (variants.size == 0)
             return maxParsedResult
 
-        var children = variants.parallelStream().map { child ->
-            // Try to match the AST nodes
-            val result = child.match(tokens, depth + 1)
+        // Skip the variants that cannot start with the current token
+        val candidates = if (context.predictive) candidates(context.tokenAt(position)?.kind) else variants
 
-            // If child did not match, continue. Otherwise - stop matching
-            // also, continue if no tokens were parsed
-            if (result.error != null) {
-                return@map MatchResults(listOf(), tokens, result.error)
-            } else {
-            }
-
-            return@map result
-        }
-        children = Stream.concat(listOf(maxParsedResult).stream(), children)
-
-        maxParsedResult = children.reduce { acc, res ->
-            if (res == null)
-                return@reduce acc
-
-            val len1 = tokens.size - acc!!.remainingTokens.size
-            val len2 = tokens.size - res.remainingTokens.size
-
-            if (len2 > len1) {
-                return@reduce res
-            } else {
-                return@reduce acc
-            }
-        }.get()
+        maxParsedResult =
+            if (context.matchesInParallel(position, candidates.size))
+                matchParallel(candidates, position, depth, context, maxParsedResult)
+            else
+                matchSequential(candidates, position, depth, context, maxParsedResult)
 
         if (maxParsedResult.error != null)
-            return MatchResults(listOf(), tokens, ParsingError(name, "No matching cases in AlternationNode"))
-
-        // TODO: remake to consume a list of tokens
-        // Only consume results to attached fast node if it is attached
-        if (fastNode != null)
-            maxParsedResult.result.forEach { node -> fastNode.consume(node) }
+            return MatchResults(listOf(), position, ParsingError(name, "No matching cases in AlternationNode"))
 
-        val result =
-            if (fastNode == null)
-                maxParsedResult.result
-            else
-                listOf(fastNode)
+        // If this node contains its own mapped FASTNode, consume the results into it.
+        val result = attach(maxParsedResult.result)
 
         if (logNodeTraversal) {
             println("${indent(depth + 1)}${greenColor}Stopping $name${noColor} with result $result")
@@ -78,11 +64,66 @@ class AlternationNode(
 
         return MatchResults(
             result,
-            maxParsedResult.remainingTokens,
+            maxParsedResult.end,
             null
         )
     }
 
+    // Tries the candidates in order and keeps the first of the longest matches.
+    private fun matchSequential(
+        candidates: List<ASTNode>,
+        position: Int,
+        depth: Int,
+        context: MatchContext,
+        initial: MatchResults
+    ): MatchResults {
+        var maxParsedResult = initial
+
+        for (child in candidates) {
+            val result = child.match(position, depth + 1, context)
+            if (result.error != null)
+                continue
+
+            // A match of no tokens does not count, as if it failed
+            if (result.end > maxParsedResult.end)
+                maxParsedResult = result
+
+            // Nothing can be longer than a match of all remaining tokens
+            if (result.end == context.tokenCount)
+                break
+        }
+
+        return maxParsedResult
+    }
+
+    // Tries all candidates at once on the pool of the context and keeps the first of the longest matches, like
+    // [matchSequential].
+    private fun matchParallel(
+        candidates: List<ASTNode>,
+        position: Int,
+        depth: Int,
+        context: MatchContext,
+        initial: MatchResults
+    ): MatchResults {
+        val tasks = candidates.map { child ->
+            Callable { context.inParallelVariant { child.match(position, depth + 1, context) } }
+        }
+
+        var maxParsedResult = initial
+        for (task in context.parallelPool.invokeAll(tasks)) {
+            val result = try {
+                task.get()
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+            // A failed match or a match of no tokens does not count
+            if (result.error == null && result.end > maxParsedResult.end)
+                maxParsedResult = result
+        }
+
+        return maxParsedResult
+    }
+
     override fun clone(): ASTNode = AlternationNode(variants.toMutableList()).also { it.name = name }
 
     override fun get(name: String): ASTNode? = variants.firstOrNull { it.name == name }
@@ -97,4 +138,4 @@ class AlternationNode(
  * The first occurrence is taken, other ones are ignored.
  * If no child matches, this node fails to match as well.
  */
-fun any(name: String = "", init: AlternationNode.() -> Unit): AlternationNode = initialize(init, name)
\ No newline at end of file
+fun any(name: String = "", init: AlternationNode.() -> Unit): AlternationNode = initialize(AlternationNode(), init, name)
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.compilingdogs.parser.ast
+
+
+/**
+ * How an [AlternationNode] tries its variants. Either way the longest match wins, and of equally long matches the
+ * earliest variant, so both strategies build the same tree.
+ */
+enum class AlternationStrategy {
+    /**
+     * Tries the variants one after another on the parsing thread, skipping those that cannot start with the current
+     * token and stopping at a variant that matches all remaining tokens.
+     */
+    SEQUENTIAL,
+
+    /**
+     * Like [SEQUENTIAL], but tries the variants as tasks of [MatchContext.parallelPool] when at least
+     * [MatchContext.parallelThreshold] tokens are left. The alternations inside those variants match sequentially.
+     */
+    PARALLEL
+}
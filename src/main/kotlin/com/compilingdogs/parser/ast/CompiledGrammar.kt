@@ -0,0 +1,525 @@
+package com.compilingdogs.parser.ast
+
+import com.compilingdogs.parser.FASTToken
+import tokens.Token
+import tokens.TokenKind
+import java.util.BitSet
+
+
+/**
+ * A grammar flattened into arrays indexed by node number, the root being node 0. Matching it runs one loop over the
+ * arrays instead of calling the nodes, and collects the FAST nodes of all open matches in one list instead of
+ * allocating [MatchResults] and lists on every step. It builds the same FAST trees as matching the nodes themselves.
+ *
+ * Alternations pick their candidates by the kinds of the next two tokens, see [TokenPrefixes], so that only the
+ * variants that can still match are tried, and most alternations have a single one left. The variants that remain
+ * together keep their ends and results in arrays by position, so that none is matched twice at the same position.
+ * When the root does not match, the error names the furthest position any node failed at, like [TokenNode] does.
+ *
+ * Made by [compileGrammar] once the grammar is complete.
+ */
+class CompiledGrammar internal constructor(
+    private val ops: ByteArray,
+    // Children of node i are children[childStart[i] until childStart[i + 1]]
+    private val childStart: IntArray,
+    private val children: IntArray,
+    // Ordinal of the token kind of a token node
+    private val tokenKinds: IntArray,
+    private val returned: BooleanArray,
+    private val factories: Array<(() -> FASTNode)?>,
+    private val tokenFactories: Array<((Token) -> FASTNode)?>,
+    // Kinds a node can start with, and the end of the tokens as the last bit, see [ASTNode.canStartWith]
+    private val starts: Array<BitSet>,
+    // Candidate variants of an alternation by token kind, and at the end of the tokens as the last entry
+    private val dispatch: Array<Array<IntArray>?>,
+    // The same candidates narrowed down by the kind of the token after, where that drops any, see [TokenPrefixes]
+    private val secondDispatch: Array<Array<Array<IntArray>?>?>,
+    // Kinds of the second token the candidates of an alternation for the kind of the first one can continue with
+    private val secondKinds: Array<Array<BitSet>?>,
+    // Operator levels of an operator precedence node, whose only child is its operand
+    private val operatorLevels: Array<List<OperatorLevel>?>,
+    // Index of the table of ends and results of a variant that may be tried again at the same position, or -1
+    private val endTables: IntArray,
+    private val endTableCount: Int
+) {
+    val nodeCount: Int
+        get() = ops.size
+
+    /**
+     * Matches the root against [tokens] and returns the FAST nodes of the match.
+     *
+     * @throws IllegalStateException with the [ParsingError] of the furthest position any node failed at, if the root
+     * does not match.
+     */
+    fun parse(tokens: List<Token>): List<FASTNode> {
+        val matcher = Matcher(tokens)
+        if (matcher.match(0, 0) == FAIL)
+            error(matcher.error())
+        return matcher.out
+    }
+
+    private inner class Matcher(private val tokens: List<Token>) {
+        private val kinds = IntArray(tokens.size) { tokens[it].kind.ordinal }
+
+        // Ends, plus two, of the variants that may be tried again at the same position, by table and then by position;
+        // zero is not known yet. Their results by the same index: nothing, a FAST node, or an array of them.
+        private val ends = arrayOfNulls<IntArray>(endTableCount)
+        private val endResults = arrayOfNulls<Array<Any?>>(endTableCount)
+
+        // The furthest position a node failed at, and the sets of kinds of the tokens that would have matched there
+        private var furthest = -1
+        private var expected = arrayOfNulls<BitSet>(16)
+        private var expectedCount = 0
+
+        // FAST nodes of the matches in progress. A match appends its results, or leaves the list as it was if it fails.
+        val out = ArrayList<FASTNode>()
+
+        private fun kindAt(position: Int): Int = if (position < kinds.size) kinds[position] else KIND_COUNT
+
+        // Returns the position after the match of [node] at [position], or FAIL.
+        fun match(node: Int, position: Int): Int {
+            val table = endTables[node]
+            if (table < 0)
+                return matchNode(node, position)
+
+            val known = ends[table]?.get(position) ?: 0
+            if (known != 0) {
+                when (val results = endResults[table]!![position]) {
+                    is FASTNode -> out.add(results)
+                    is Array<*> -> results.forEach { out.add(it as FASTNode) }
+                }
+                return known - 2
+            }
+
+            val start = out.size
+            val end = matchNode(node, position)
+            val tableEnds = ends[table] ?: IntArray(kinds.size + 1).also { ends[table] = it }
+            val tableResults = endResults[table] ?: arrayOfNulls<Any?>(kinds.size + 1).also { endResults[table] = it }
+            tableEnds[position] = end + 2
+            tableResults[position] = when (out.size - start) {
+                0 -> null
+                1 -> out[start]
+                else -> out.subList(start, out.size).toTypedArray()
+            }
+            return end
+        }
+
+        private fun matchNode(node: Int, position: Int): Int {
+            val from = childStart[node]
+            val to = childStart[node + 1]
+            val start = out.size
+
+            when (ops[node]) {
+                TOKEN -> {
+                    if (kindAt(position) != tokenKinds[node]) {
+                        fail(position, starts[node])
+                        return FAIL
+                    }
+                    if (returned[node])
+                        out.add(tokenResult(node, tokens[position]))
+                    return position + 1
+                }
+
+                CONCATENATION -> {
+                    if (from == to)
+                        return FAIL
+
+                    var next = position
+                    for (i in from until to) {
+                        next = match(children[i], next)
+                        if (next == FAIL) {
+                            truncate(start)
+                            return FAIL
+                        }
+                    }
+                    attach(node, start)
+                    return next
+                }
+
+                REPETITION -> {
+                    var last = position
+                    repetition@ while (from < to) {
+                        for (i in from until to) {
+                            val child = children[i]
+                            if (!starts[child][kindAt(last)]) {
+                                fail(last, starts[child])
+                                break@repetition
+                            }
+                            val end = match(child, last)
+                            if (end == FAIL)
+                                break@repetition
+                            last = end
+                        }
+                    }
+                    attach(node, start)
+                    return last
+                }
+
+                ALTERNATION -> {
+                    val kind = kindAt(position)
+                    val byFirst = dispatch[node]!![kind]
+                    if (byFirst.isEmpty())
+                        fail(position, starts[node])
+                    val bySecond = secondDispatch[node]!![kind]
+                    val candidates = if (bySecond == null) byFirst else bySecond[kindAt(position + 1)]
+                    // The variants dropped by the second token would fail on it
+                    if (candidates.size < byFirst.size)
+                        fail(position + 1, secondKinds[node]!![kind])
+
+                    // The results of the longest match so far stay in [out], those of a shorter one are dropped.
+                    // A match of no tokens does not count, as if it failed.
+                    var longest = position
+                    for (child in candidates) {
+                        val variantStart = out.size
+                        val end = match(child, position)
+                        if (end == FAIL)
+                            continue
+                        if (end <= longest) {
+                            truncate(variantStart)
+                            continue
+                        }
+
+                        if (variantStart > start)
+                            truncate(start, variantStart)
+                        longest = end
+                        // Nothing can be longer than a match of all remaining tokens
+                        if (end == kinds.size)
+                            break
+                    }
+                    if (longest == position)
+                        return FAIL
+                    attach(node, start)
+                    return longest
+                }
+
+                OPTION -> {
+                    val end = match(children[from], position)
+                    if (end == FAIL)
+                        return position
+                    attach(node, start)
+                    return end
+                }
+
+                OPERATORS -> return matchOperators(node, 0, position)
+            }
+            throw IllegalStateException("Unknown operation ${ops[node]}")
+        }
+
+        // Matches a chain of the operators of [level] and tighter ones like [OperatorPrecedenceNode].
+        private fun matchOperators(node: Int, level: Int, position: Int): Int {
+            val levels = operatorLevels[node]!!
+            if (level == levels.size)
+                return match(children[childStart[node]], position)
+
+            val start = out.size
+            var next = matchOperators(node, level + 1, position)
+            if (next == FAIL)
+                return FAIL
+
+            // Fold to the left: every operator takes the tree so far and the next operand
+            var folded = false
+            while (true) {
+                val operator = levels[level].factoryFor(kindAt(next)) ?: break
+                val end = matchOperators(node, level + 1, next + 1)
+                // The last operator has no right operand, leave it unmatched
+                if (end == FAIL)
+                    break
+
+                replace(operator, start)
+                folded = true
+                next = end
+            }
+
+            // A lone operand is wrapped into the FAST node of the first operator of the level
+            if (!folded)
+                replace(levels[level].factories.first(), start)
+            return next
+        }
+
+        // Replaces the results from [start] on with the FAST node of [factory] consuming them.
+        private fun replace(factory: () -> FASTNode, start: Int) {
+            val fastNode = factory()
+            for (i in start until out.size)
+                fastNode.consume(out[i])
+            truncate(start)
+            out.add(fastNode)
+        }
+
+        private fun tokenResult(node: Int, token: Token): FASTNode =
+            tokenFactories[node]?.invoke(token) ?: factories[node]?.invoke() ?: FASTToken(token)
+
+        // Replaces the results from [start] on with the attached FAST node of [node] consuming them, if it has one.
+        private fun attach(node: Int, start: Int) {
+            replace(factories[node] ?: return, start)
+        }
+
+        private fun truncate(size: Int) = truncate(size, out.size)
+
+        private fun truncate(from: Int, to: Int) {
+            if (to == out.size) {
+                for (i in to - 1 downTo from)
+                    out.removeAt(i)
+            } else if (to > from)
+                out.subList(from, to).clear()
+        }
+
+        private fun fail(position: Int, kinds: BitSet) {
+            if (position < furthest)
+                return
+            if (position > furthest) {
+                furthest = position
+                expectedCount = 0
+            }
+            if (expectedCount == expected.size)
+                expected = expected.copyOf(expectedCount * 2)
+            expected[expectedCount++] = kinds
+        }
+
+        // Describes the furthest failure in the terms of [TokenNode]: what was expected, and the token found instead.
+        fun error(): ParsingError {
+            val kinds = BitSet()
+            for (i in 0 until expectedCount)
+                kinds.or(expected[i])
+            val expectation = (0 until KIND_COUNT).filter { kinds[it] }.joinToString(" or ") {
+                val kind = TokenKind.fromOrdinal(it)
+                if (kind.hasFixedText()) "\"${kind.text}\"" else kind.tokenClass.simpleName
+            }
+            val received = if (furthest in tokens.indices) tokens[furthest].token else "end of file"
+            return ParsingError(expectation, received)
+        }
+    }
+
+    companion object {
+        internal const val TOKEN: Byte = 0
+        internal const val CONCATENATION: Byte = 1
+        internal const val REPETITION: Byte = 2
+        internal const val ALTERNATION: Byte = 3
+        internal const val OPTION: Byte = 4
+        internal const val OPERATORS: Byte = 5
+
+        private const val FAIL = -1
+        private val KIND_COUNT = TokenKind.values().size
+    }
+}
+
+/**
+ * Flattens the grammar below [root] into a [CompiledGrammar]. The grammar must be complete and analyzed by
+ * [analyzeGrammar], whose FIRST sets become the dispatch tables of the compiled grammar.
+ */
+fun compileGrammar(root: ASTNode): CompiledGrammar {
+    val nodes = reachableNodes(root)
+    val index = HashMap<ASTNode, Int>()
+    nodes.forEachIndexed { i, node -> index[node] = i }
+
+    val kinds = TokenKind.values()
+    val ops = ByteArray(nodes.size)
+    val childStart = IntArray(nodes.size + 1)
+    val children = mutableListOf<Int>()
+    val tokenKinds = IntArray(nodes.size) { -1 }
+    val returned = BooleanArray(nodes.size)
+    val tokenFactories = arrayOfNulls<(Token) -> FASTNode>(nodes.size)
+    val dispatch = arrayOfNulls<Array<IntArray>>(nodes.size)
+    val operatorLevels = arrayOfNulls<List<OperatorLevel>>(nodes.size)
+
+    nodes.forEachIndexed { i, node ->
+        childStart[i] = children.size
+        when (node) {
+            is TokenNode<*> -> {
+                ops[i] = CompiledGrammar.TOKEN
+                tokenKinds[i] = node.kind.ordinal
+                returned[i] = node.shouldBeReturned
+                tokenFactories[i] = node.tokenFactory
+            }
+            is ConcatenationNode -> {
+                ops[i] = CompiledGrammar.CONCATENATION
+                node.children.forEach { children.add(index[it]!!) }
+            }
+            is RepetitionNode -> {
+                ops[i] = CompiledGrammar.REPETITION
+                node.children.forEach { children.add(index[it]!!) }
+            }
+            is AlternationNode -> {
+                ops[i] = CompiledGrammar.ALTERNATION
+                node.variants.forEach { children.add(index[it]!!) }
+                dispatch[i] = Array(kinds.size + 1) { k ->
+                    val kind = if (k < kinds.size) kinds[k] else null
+                    node.variants.filter { it.canStartWith(kind) }.map { index[it]!! }.toIntArray()
+                }
+            }
+            is OptionalNode -> {
+                ops[i] = CompiledGrammar.OPTION
+                children.add(index[node.node]!!)
+            }
+            is OperatorPrecedenceNode -> {
+                ops[i] = CompiledGrammar.OPERATORS
+                children.add(index[node.operand]!!)
+                operatorLevels[i] = node.levels.toList()
+            }
+            else -> throw IllegalArgumentException("Cannot compile $node")
+        }
+    }
+    childStart[nodes.size] = children.size
+
+    val starts = Array(nodes.size) { i ->
+        val start = BitSet(kinds.size + 1)
+        for (k in 0..kinds.size)
+            if (nodes[i].canStartWith(if (k < kinds.size) kinds[k] else null))
+                start.set(k)
+        start
+    }
+
+    val prefixes = tokenPrefixes(nodes, index)
+    val secondDispatch = arrayOfNulls<Array<Array<IntArray>?>>(nodes.size)
+    val secondKinds = arrayOfNulls<Array<BitSet>>(nodes.size)
+    nodes.forEachIndexed { i, node ->
+        if (node !is AlternationNode)
+            return@forEachIndexed
+
+        secondDispatch[i] = Array(kinds.size + 1) { k ->
+            val candidates = dispatch[i]!![k]
+            if (k == kinds.size || candidates.size < 2)
+                return@Array null
+            val bySecond = Array(kinds.size + 1) { second ->
+                candidates.filter { prefixes[it].canStartWith(k, second) }.toIntArray()
+            }
+            if (bySecond.all { it.size == candidates.size }) null else bySecond
+        }
+        secondKinds[i] = Array(kinds.size + 1) { k ->
+            val second = BitSet(kinds.size)
+            if (k < kinds.size)
+                dispatch[i]!![k].forEach { second.or(prefixes[it].pairs[k]) }
+            second
+        }
+    }
+
+    // The variants that may be tried again at the same position keep their ends and results
+    val endTables = IntArray(nodes.size) { -1 }
+    var endTableCount = 0
+    fun keepEnds(node: Int) {
+        if (endTables[node] < 0)
+            endTables[node] = endTableCount++
+    }
+    nodes.forEachIndexed { i, node ->
+        when (node) {
+            is AlternationNode -> dispatch[i]!!.forEachIndexed { k, candidates ->
+                val bySecond = secondDispatch[i]!![k]
+                for (variants in bySecond ?: arrayOf(candidates))
+                    if (variants.size > 1)
+                        variants.forEach(::keepEnds)
+            }
+        }
+    }
+
+    return CompiledGrammar(
+        ops,
+        childStart,
+        children.toIntArray(),
+        tokenKinds,
+        returned,
+        Array(nodes.size) { nodes[it].attachedTo },
+        tokenFactories,
+        starts,
+        dispatch,
+        secondDispatch,
+        secondKinds,
+        operatorLevels,
+        endTables,
+        endTableCount
+    )
+}
+
+/**
+ * The first two tokens of the matches of a node: the kinds of the tokens it can match alone, the kinds of the second
+ * token after every kind of the first one, and whether it can match no tokens. Lets an alternation skip the variants
+ * that cannot start with the next two tokens, where the FIRST sets leave several. Over-approximates like the FIRST
+ * sets of [analyzeGrammar], so a skipped variant would have failed.
+ */
+internal class TokenPrefixes(kindCount: Int) {
+    val single = BitSet(kindCount)
+    val pairs = Array(kindCount) { BitSet(kindCount) }
+    var nullable = false
+
+    // Kinds of the first token, the end of the tokens being the last kind, and likewise of the second.
+    fun canStartWith(first: Int, second: Int): Boolean =
+        nullable || first < pairs.size && (single[first] || second < pairs.size && pairs[first][second])
+
+    fun first(): BitSet {
+        val first = single.clone() as BitSet
+        pairs.forEachIndexed { k, second -> if (!second.isEmpty) first.set(k) }
+        return first
+    }
+
+    fun add(other: TokenPrefixes) {
+        single.or(other.single)
+        pairs.forEachIndexed { k, second -> second.or(other.pairs[k]) }
+        nullable = nullable || other.nullable
+    }
+
+    // Adds the prefixes of [parts] matched one after another.
+    fun addSequence(parts: List<TokenPrefixes>) {
+        // Whether the parts so far can match nothing, and the kinds of their matches of one token
+        var empty = true
+        var one = BitSet()
+        for (part in parts) {
+            val partFirst = part.first()
+            one.stream().forEach { pairs[it].or(partFirst) }
+            if (empty)
+                pairs.forEachIndexed { k, second -> second.or(part.pairs[k]) }
+
+            val next = if (part.nullable) one else BitSet()
+            if (empty)
+                next.or(part.single)
+            one = next
+            empty = empty && part.nullable
+        }
+        single.or(one)
+        nullable = nullable || empty
+    }
+
+    // Adds the prefixes of any number of matches of [other].
+    fun addRepeated(other: TokenPrefixes) {
+        add(other)
+        val otherFirst = other.first()
+        other.single.stream().forEach { pairs[it].or(otherFirst) }
+        nullable = true
+    }
+
+    fun size(): Int = single.cardinality() + pairs.sumBy { it.cardinality() } + if (nullable) 1 else 0
+}
+
+// Computes the [TokenPrefixes] of [nodes], iterating over the cyclic grammar until nothing grows like [analyzeGrammar].
+private fun tokenPrefixes(nodes: List<ASTNode>, index: Map<ASTNode, Int>): Array<TokenPrefixes> {
+    val kindCount = TokenKind.values().size
+    val prefixes = Array(nodes.size) { TokenPrefixes(kindCount) }
+    fun of(node: ASTNode) = prefixes[index[node]!!]
+
+    do {
+        var changed = false
+        nodes.forEachIndexed { i, node ->
+            val target = prefixes[i]
+            val before = target.size()
+            when (node) {
+                is TokenNode<*> -> target.single.set(node.kind.ordinal)
+                is ConcatenationNode -> if (node.children.isNotEmpty()) target.addSequence(node.children.map(::of))
+                // Matches its children in order, but may stop after any of them, so take them in any order
+                is RepetitionNode -> target.addRepeated(TokenPrefixes(kindCount).apply { node.children.forEach { add(of(it)) } })
+                is AlternationNode -> node.variants.forEach { target.add(of(it)) }
+                is OptionalNode -> {
+                    target.add(of(node.node))
+                    target.nullable = true
+                }
+                is OperatorPrecedenceNode -> {
+                    val operand = of(node.operand)
+                    val operator = TokenPrefixes(kindCount)
+                    node.levels.forEach { level -> level.operators.forEach { operator.single.set(it.kind.ordinal) } }
+                    val operation = TokenPrefixes(kindCount).apply { addSequence(listOf(operator, operand)) }
+                    target.addSequence(listOf(operand, TokenPrefixes(kindCount).apply { addRepeated(operation) }))
+                }
+            }
+            if (target.size() != before)
+                changed = true
+        }
+    } while (changed)
+
+    return prefixes
+}
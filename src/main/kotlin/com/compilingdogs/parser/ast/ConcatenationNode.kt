@@ -1,7 +1,6 @@
 package com.compilingdogs.parser.ast
 
 import com.compilingdogs.parser.*
-import tokens.Token
 import java.lang.IllegalStateException
 
 open class ConcatenationNode(
@@ -11,21 +10,19 @@ open class ConcatenationNode(
     operator fun ASTNode.unaryPlus() = children.add(this)
 
 
-    override fun match(tokens_: List<Token>, depth: Int): MatchResults {
+    override fun matchTokens(position: Int, depth: Int, context: MatchContext): MatchResults {
         if (logNodeTraversal) {
             println("${indent(depth)}Matching ConcatenationNode $name")
-            println("${indent(depth + 1)}${lightGray}Tokens: ${tokens_.joinToString(" ")}${noColor}")
+            println("${indent(depth + 1)}${lightGray}Tokens: ${context.describe(position)}${noColor}")
         }
 
-        // Create a separate mutable tokens variable to alter it during parsing
-        var tokens = tokens_
+        // Position of the next child's first token
+        var next = position
 
-        // If this node contains its own mapped FASTNode, use it.
-        val fastNode = attachedTo?.newInstance()
-        // In case fastNode is undefined, results are stored in this list instead
-        var results = mutableListOf<FASTNode>()
+        // Results of the children, consumed by the mapped FASTNode once all of them have matched
+        val results = mutableListOf<FASTNode>()
 
-        var result = MatchResults(listOf(), tokens, ParsingError(name, "Empty cases in ConcatenationNode"))
+        var result = MatchResults(listOf(), position, ParsingError(name, "Empty cases in ConcatenationNode"))
 
         if (children.size == 0)
             return result
@@ -33,36 +30,28 @@ open class ConcatenationNode(
         for (child in children) {
             // Try to match the AST node
             result = child.match(
-//                    transformTokens(tokens.subList(offset, tokens.size)),
-                tokens,
-                depth + 1
+                next,
+                depth + 1,
+                context
             )
 
             // If child did not match, abort and propagate the error up
             if (result.error != null) return result
 
-            if (fastNode != null)
-                result.result.forEach { node -> fastNode.consume(node) }
-            else
-            // TODO: think about this
-                results.addAll(result.result)
+            results.addAll(result.result)
 
-            val parsedTokensSize = tokens.size - result.remainingTokens.size
-            tokens = tokens.subList(parsedTokensSize, tokens.size)
+            next = result.end
         }
 
-        val res =
-            if (fastNode != null)
-            listOf(fastNode)
-        else
-            results
+        // If this node contains its own mapped FASTNode, consume the results into it.
+        val res = attach(results)
 
         if (logNodeTraversal)
             println("${indent(depth + 1)}${yellowColor}Stopping $name${noColor} with result $res")
 
         return MatchResults(
             res,
-            tokens,
+            next,
             null
         )
     }
@@ -81,4 +70,4 @@ open class ConcatenationNode(
  * Creates a node that should match all the children specified in it sequentially.
  * If at least one child node fails - entire concat node fails.
  * */
-fun concat(name: String = "", init: ConcatenationNode.() -> Unit): ConcatenationNode = initialize(init, name)
+fun concat(name: String = "", init: ConcatenationNode.() -> Unit): ConcatenationNode = initialize(ConcatenationNode(), init, name)
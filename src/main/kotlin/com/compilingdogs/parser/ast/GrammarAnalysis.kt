@@ -0,0 +1,106 @@
+package com.compilingdogs.parser.ast
+
+import tokens.TokenKind
+import java.util.ArrayDeque
+import java.util.BitSet
+
+
+/**
+ * Computes the FIRST set and nullability of every node reachable from [root] and builds the dispatch tables of the
+ * alternations. Must run once the grammar is complete, i.e. after the circular references are patched in, and before
+ * the first parse.
+ *
+ * Both are over-approximations: a node may fail on a token of its FIRST set, or match nothing although it is nullable,
+ * but never succeeds on a token outside its FIRST set unless it is nullable. So skipping a node that cannot start with
+ * the current token never changes the result of a parse.
+ */
+fun analyzeGrammar(root: ASTNode) {
+    val nodes = reachableNodes(root)
+    for (node in nodes) {
+        node.first = BitSet(TokenKind.values().size)
+        node.nullable = false
+    }
+
+    // The grammar is cyclic, so iterate until nothing grows anymore. Sets only grow, so this terminates.
+    do {
+        var changed = false
+        for (node in nodes) {
+            val first = node.first!!
+            val before = first.cardinality()
+            val nullable = when (node) {
+                is TokenNode<*> -> {
+                    first.set(node.kind.ordinal)
+                    false
+                }
+                is ConcatenationNode -> addSequence(first, node.children)
+                is RepetitionNode -> {
+                    addSequence(first, node.children)
+                    true
+                }
+                is AlternationNode -> {
+                    node.variants.forEach { first.or(it.first!!) }
+                    node.variants.any { it.nullable }
+                }
+                is OptionalNode -> {
+                    first.or(node.node.first!!)
+                    true
+                }
+                is OperatorPrecedenceNode -> {
+                    first.or(node.operand.first!!)
+                    // An empty operand may be followed by an operator
+                    if (node.operand.nullable)
+                        node.levels.forEach { level -> level.operators.forEach { first.set(it.kind.ordinal) } }
+                    node.operand.nullable
+                }
+                // An unknown kind of node may start with anything
+                else -> {
+                    first.set(0, TokenKind.values().size)
+                    true
+                }
+            }
+
+            if (first.cardinality() != before || nullable != node.nullable) {
+                node.nullable = nullable
+                changed = true
+            }
+        }
+    } while (changed)
+
+    nodes.forEach { it.buildDispatch() }
+}
+
+// Adds the FIRST sets of [children] matched one after another, up to the first one that cannot match nothing.
+// Returns whether all children, and so the whole sequence, can match nothing. An empty sequence never matches.
+private fun addSequence(first: BitSet, children: List<ASTNode>): Boolean {
+    for (child in children) {
+        first.or(child.first!!)
+        if (!child.nullable)
+            return false
+    }
+    return children.isNotEmpty()
+}
+
+// All nodes reachable from [root], the root first.
+internal fun reachableNodes(root: ASTNode): List<ASTNode> {
+    val seen = HashSet<ASTNode>()
+    val nodes = mutableListOf<ASTNode>()
+    val pending = ArrayDeque<ASTNode>()
+    pending.push(root)
+
+    while (pending.isNotEmpty()) {
+        val node = pending.pop()
+        if (!seen.add(node))
+            continue
+        nodes.add(node)
+
+        when (node) {
+            is ConcatenationNode -> node.children.forEach { pending.push(it) }
+            is RepetitionNode -> node.children.forEach { pending.push(it) }
+            is AlternationNode -> node.variants.forEach { pending.push(it) }
+            is OptionalNode -> pending.push(node.node)
+            is OperatorPrecedenceNode -> pending.push(node.operand)
+        }
+    }
+
+    return nodes
+}
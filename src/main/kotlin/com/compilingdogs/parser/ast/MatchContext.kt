@@ -0,0 +1,108 @@
+package com.compilingdogs.parser.ast
+
+import tokens.Token
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.atomic.LongAdder
+
+
+/**
+ * State shared by all nodes during one parse: the parsed tokens, which nodes address by their position, and the memo.
+ *
+ * With [memoizing] on, it is a packrat memo: the result of every node at every token position is kept, so that a
+ * node tried again at the same position, e.g. by another variant of an alternation, returns the earlier result
+ * instead of matching again. A result only depends on the node and the position, so it can be reused as it is.
+ * The results of a node are kept in an array by position, allocated when the node stores its first one.
+ *
+ * With [predictive] on, alternations and repetitions consult the FIRST sets of their children, see [analyzeGrammar],
+ * and do not try a child that cannot start with the current token.
+ *
+ * With [AlternationStrategy.PARALLEL], an alternation with at least [parallelThreshold] tokens left tries its variants
+ * as tasks of [parallelPool], see [matchesInParallel].
+ */
+class MatchContext(
+    tokens: List<Token>,
+    val memoizing: Boolean,
+    val alternationStrategy: AlternationStrategy = AlternationStrategy.SEQUENTIAL,
+    val parallelThreshold: Int = Int.MAX_VALUE,
+    val predictive: Boolean = true,
+    val parallelPool: ForkJoinPool = ForkJoinPool.commonPool()
+) {
+    private val tokens: Array<Token> = tokens.toTypedArray()
+
+    // Results by node id, then by position. Alternations that match their variants on several threads, see
+    // [AlternationStrategy.PARALLEL], share a concurrent map by node and position instead.
+    private var memo = arrayOfNulls<Array<MatchResults?>>(0)
+    private var memoCount = 0
+    private val sharedMemo =
+        if (alternationStrategy == AlternationStrategy.PARALLEL) ConcurrentHashMap<Long, MatchResults>() else null
+
+    val tokenCount: Int
+        get() = tokens.size
+
+    // Number of results stored in the memo.
+    val memoSize: Int
+        get() = sharedMemo?.size ?: memoCount
+
+    private val matches = LongAdder()
+
+    // Number of times any node was asked to match, including the answers taken from the memo.
+    val matchCalls: Long
+        get() = matches.sum()
+
+    fun countMatch() = matches.increment()
+
+    // Set on the threads that match a variant of a parallel alternation
+    private val inParallelVariant = ThreadLocal.withInitial { false }
+
+    /**
+     * Tells whether an alternation at [position] with [variants] candidates tries them in parallel. Only alternations
+     * with at least [parallelThreshold] tokens left do, and not those inside a variant that is itself matched in
+     * parallel, so that tasks of the pool never wait for each other.
+     */
+    fun matchesInParallel(position: Int, variants: Int): Boolean =
+        alternationStrategy == AlternationStrategy.PARALLEL && variants > 1 &&
+            tokens.size - position >= parallelThreshold && !inParallelVariant.get()
+
+    /**
+     * Matches [variant] as a task of a parallel alternation, see [matchesInParallel].
+     */
+    fun <T> inParallelVariant(variant: () -> T): T {
+        inParallelVariant.set(true)
+        try {
+            return variant()
+        } finally {
+            inParallelVariant.set(false)
+        }
+    }
+
+    /**
+     * @return the token at [position], or null at the end of the tokens.
+     */
+    fun tokenAt(position: Int): Token? = if (position < tokens.size) tokens[position] else null
+
+    // Remaining tokens as text, for the traversal log.
+    fun describe(position: Int): String = tokens.asList().subList(position, tokens.size).joinToString(" ")
+
+    fun lookup(node: ASTNode, position: Int): MatchResults? {
+        if (sharedMemo != null)
+            return sharedMemo[key(node, position)]
+        return if (node.id < memo.size) memo[node.id]?.get(position) else null
+    }
+
+    fun store(node: ASTNode, position: Int, results: MatchResults) {
+        if (sharedMemo != null) {
+            sharedMemo[key(node, position)] = results
+            return
+        }
+
+        if (node.id >= memo.size)
+            memo = memo.copyOf(maxOf(node.id + 1, memo.size * 2))
+        val table = memo[node.id] ?: arrayOfNulls<MatchResults>(tokens.size + 1).also { memo[node.id] = it }
+        if (table[position] == null)
+            memoCount++
+        table[position] = results
+    }
+
+    private fun key(node: ASTNode, position: Int): Long = (node.id.toLong() shl 32) or position.toLong()
+}
@@ -0,0 +1,116 @@
+package com.compilingdogs.parser.ast
+
+import com.compilingdogs.parser.cyanColor
+import com.compilingdogs.parser.indent
+import com.compilingdogs.parser.lightGray
+import com.compilingdogs.parser.noColor
+import tokens.TokenKind
+
+
+// Binary operators of the same precedence, each with the FAST node it builds.
+class OperatorLevel {
+    internal val operators = mutableListOf<TokenNode<*>>()
+    internal val factories = mutableListOf<() -> FASTNode>()
+
+    // Factories by the ordinal of the kind of the operator token.
+    private val byKind = arrayOfNulls<() -> FASTNode>(TokenKind.values().size)
+
+    fun binary(token: TokenNode<*>, factory: () -> FASTNode) {
+        operators.add(token)
+        factories.add(factory)
+        byKind[token.kind.ordinal] = factory
+    }
+
+    internal fun factoryFor(kind: TokenKind?): (() -> FASTNode)? = if (kind == null) null else byKind[kind.ordinal]
+
+    // Same by ordinal, where an ordinal past the last kind stands for the end of the tokens.
+    internal fun factoryFor(ordinal: Int): (() -> FASTNode)? = if (ordinal < byKind.size) byKind[ordinal] else null
+}
+
+/**
+ * Matches chains of binary operators over [operand]s by precedence climbing: every operand is matched once, and every
+ * operator is found by the kind of its token, so a chain is matched in linear time.
+ *
+ * The operators of a level are left-associative, `a - b + c` becoming `(a - b) + c`: every operator takes the tree so
+ * far as its left operand and the next operand of the level as its right one. An operand without an operator of a
+ * level is wrapped into the FAST node of the first operator of the level, as the concatenation per operator and level
+ * that the node replaces did, e.g. `concat { mapTo { FASTAddOperator() }; +term; +repeat { +plus; +term } }`.
+ */
+class OperatorPrecedenceNode(
+    // Levels from the loosest binding operators to the tightest
+    val levels: MutableList<OperatorLevel> = ArrayList()
+) : ASTNode() {
+    lateinit var operand: ASTNode
+
+    fun level(init: OperatorLevel.() -> Unit) {
+        levels.add(OperatorLevel().apply(init))
+    }
+
+    override fun matchTokens(position: Int, depth: Int, context: MatchContext): MatchResults {
+        if (logNodeTraversal) {
+            println("${indent(depth)}Matching OperatorPrecedenceNode $name")
+            println("${indent(depth + 1)}${lightGray}Tokens: ${context.describe(position)}${noColor}")
+        }
+
+        val result = matchLevel(0, position, depth, context)
+
+        if (logNodeTraversal && result.error == null)
+            println("${indent(depth + 1)}${cyanColor}Stopping $name${noColor} with result ${result.result}")
+
+        return result
+    }
+
+    private fun matchLevel(level: Int, position: Int, depth: Int, context: MatchContext): MatchResults {
+        if (level == levels.size)
+            return operand.match(position, depth + 1, context)
+
+        val first = matchLevel(level + 1, position, depth, context)
+        if (first.error != null)
+            return first
+
+        // Fold to the left: every operator takes the tree so far and the next operand
+        var tree = first.result
+        var folded = false
+        var next = first.end
+        while (true) {
+            val operator = levels[level].factoryFor(context.tokenAt(next)?.kind) ?: break
+            val res = matchLevel(level + 1, next + 1, depth, context)
+            // The last operator has no right operand, leave it unmatched
+            if (res.error != null)
+                break
+
+            tree = combine(operator, tree, res.result)
+            folded = true
+            next = res.end
+        }
+
+        // A lone operand is wrapped into the FAST node of the first operator of the level
+        if (!folded)
+            tree = combine(levels[level].factories.first(), tree, listOf())
+        return MatchResults(tree, next, null)
+    }
+
+    private fun combine(factory: () -> FASTNode, left: List<FASTNode>, right: List<FASTNode>): List<FASTNode> {
+        val fastNode = factory()
+        left.forEach { node -> fastNode.consume(node) }
+        right.forEach { node -> fastNode.consume(node) }
+        return listOf(fastNode)
+    }
+
+    override fun clone(): ASTNode =
+        OperatorPrecedenceNode(levels.toMutableList()).also { it.name = name; it.operand = operand }
+
+    override fun get(name: String): ASTNode? = if (operand.name == name) operand else null
+
+    override fun toString(): String {
+        return "OperatorPrecedenceNode($name)"
+    }
+}
+
+/**
+ * Creates a node that matches chains of binary operators over an operand, see [OperatorPrecedenceNode].
+ * Levels are added with [OperatorPrecedenceNode.level] from the loosest to the tightest; the operand is set with
+ * [OperatorPrecedenceNode.operand]. Every level must have at least one operator.
+ */
+fun operators(name: String = "", init: OperatorPrecedenceNode.() -> Unit): OperatorPrecedenceNode =
+    initialize(OperatorPrecedenceNode(), init, name)
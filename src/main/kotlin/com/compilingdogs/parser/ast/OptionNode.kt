@@ -4,7 +4,6 @@ import com.compilingdogs.parser.blueColor
 import com.compilingdogs.parser.indent
 import com.compilingdogs.parser.lightGray
 import com.compilingdogs.parser.noColor
-import tokens.Token
 import java.lang.Error
 
 
@@ -12,30 +11,21 @@ class OptionalNode(
     var node: ASTNode
 ) : ASTNode() {
 
-    override fun match(tokens: List<Token>, depth: Int): MatchResults {
+    override fun matchTokens(position: Int, depth: Int, context: MatchContext): MatchResults {
         // Debugging stuff.
         if (logNodeTraversal) {
             println("${indent(depth)}Matching OptionalNode $name")
-            println("${indent(depth + 1)}${lightGray}Tokens: ${tokens.joinToString(" ")}${noColor}")
+            println("${indent(depth + 1)}${lightGray}Tokens: ${context.describe(position)}${noColor}")
         }
 
-        // If this node contains its own mapped FASTNode, use it.
-        val fastNode = attachedTo?.newInstance()
-
-        val res = node.match(tokens, depth + 1)
+        val res = node.match(position, depth + 1, context)
 
         // Check if parsing failed. Do nothing in this case.
         if (res.error != null)
-            return MatchResults(listOf(), tokens, null)
-
-        if (fastNode != null)
-            res.result.forEach { node -> fastNode.consume(node) }
+            return MatchResults(listOf(), position, null)
 
-        val result =
-            if (fastNode != null)
-                listOf(fastNode)
-            else
-                res.result
+        // If this node contains its own mapped FASTNode, consume the results into it.
+        val result = attach(res.result)
 
         // Debugging stuff.
         if (logNodeTraversal)
@@ -43,7 +33,7 @@ class OptionalNode(
 
         return MatchResults(
             result,
-            res.remainingTokens,
+            res.end,
             null
         )
     }
@@ -1,7 +1,6 @@
 package com.compilingdogs.parser.ast
 
 import com.compilingdogs.parser.*
-import tokens.Token
 import java.lang.IllegalStateException
 
 
@@ -12,54 +11,44 @@ class RepetitionNode(
 
     operator fun ASTNode.unaryPlus() = children.add(this)
 
-    override fun match(tokens: List<Token>, depth: Int): MatchResults {
+    override fun matchTokens(position: Int, depth: Int, context: MatchContext): MatchResults {
         if (logNodeTraversal) {
             println("${indent(depth)}Matching RepetitionNode $name")
-            println("${indent(depth + 1)}${lightGray}Tokens: ${tokens.joinToString(" ")}${noColor}")
+            println("${indent(depth + 1)}${lightGray}Tokens: ${context.describe(position)}${noColor}")
         }
 
-        // If this node contains its own mapped FASTNode, use it.
-        val fastNode = attachedTo?.newInstance()
-
-        // Offset in the token list
+        // Results of the matched children, consumed by the mapped FASTNode once the repetition stops
         val results = mutableListOf<FASTNode>()
-        var lastSuccessfulRemainingTokens = tokens
+        // Position after the last successful match of a child
+        var lastSuccessfulEnd = position
 
         while (true) {
             for (child in children) {
-                // Try to match the AST node
-                val res = child.match(
-                    lastSuccessfulRemainingTokens,
-                    depth + 1
-                )
+                // Do not try a child that cannot start with the current token, it would not match
+                val res =
+                    if (context.predictive && !child.canStartWith(context.tokenAt(lastSuccessfulEnd)?.kind))
+                        null
+                    else
+                        child.match(lastSuccessfulEnd, depth + 1, context)
 
                 // If child did not match, abort
-                if (res.error != null) {
-                    if (fastNode != null)
-                        res.result.forEach { node -> fastNode.consume(node) }
-
-                    val result =
-                        if (fastNode != null)
-                            listOf(fastNode)
-                        else
-                            results
+                if (res == null || res.error != null) {
+                    // If this node contains its own mapped FASTNode, consume the results into it.
+                    val result = attach(results)
 
                     if (logNodeTraversal)
                         println("${indent(depth + 1)}${magentaColor}Stopping $name${noColor} with result $result")
 
                     return MatchResults(
                         result,
-                        lastSuccessfulRemainingTokens,
+                        lastSuccessfulEnd,
                         null
                     )
                 }
 
-                if (fastNode != null)
-                    res.result.forEach { node -> fastNode.consume(node) }
-                else
-                    results.addAll(res.result)
+                results.addAll(res.result)
 
-                lastSuccessfulRemainingTokens = res.remainingTokens
+                lastSuccessfulEnd = res.end
             }
         }
     }
@@ -77,4 +66,4 @@ class RepetitionNode(
  * Creates a node that may be repeated arbitrary amount of times (0 or more).
  * If no matches occur - this node has no effect. It may not fail.
  */
-fun repeat(name: String = "", init: RepetitionNode.() -> Unit): RepetitionNode = initialize(init, name)
+fun repeat(name: String = "", init: RepetitionNode.() -> Unit): RepetitionNode = initialize(RepetitionNode(), init, name)
@@ -5,8 +5,8 @@ import com.compilingdogs.parser.indent
 import com.compilingdogs.parser.lightGray
 import com.compilingdogs.parser.noColor
 import tokens.Token
+import tokens.TokenKind
 import java.lang.Error
-import java.lang.reflect.Constructor
 
 
 // Holds a token parsed from lexer. A very basic unit of an AST parser.
@@ -14,40 +14,49 @@ class TokenNode<T>(
     val nodeType: Class<T>,
     val shouldBeReturned: Boolean = false,
 ) : ASTNode() where T : Token {
+    internal val kind: TokenKind = TokenKind.of(nodeType)
 
-    override fun match(tokens: List<Token>, depth: Int): MatchResults {
+    // Creates the FAST node of a matched token from the token itself, see [mapToken].
+    internal var tokenFactory: ((Token) -> FASTNode)? = null
+
+    override val memoized: Boolean
+        get() = false
+
+    override fun canStartWith(kind: TokenKind?): Boolean = kind == this.kind
+
+    override fun matchTokens(position: Int, depth: Int, context: MatchContext): MatchResults {
         if (logNodeTraversal) {
             println("${indent(depth)}Matching TokenNode of type ${nodeType.simpleName}")
-            println("${indent(depth + 1)}${lightGray}Tokens: ${tokens.joinToString(" ")}$noColor")
+            println("${indent(depth + 1)}${lightGray}Tokens: ${context.describe(position)}$noColor")
         }
 
-        if (tokens.isNotEmpty() && tokens[0].javaClass == nodeType) {
+        val token = context.tokenAt(position)
+        if (token != null && token.kind == kind) {
             // Node matched
 
             if (shouldBeReturned) {
-                val toConsume = if (attachedTo != null) {
-                    val oneArgNode =
-                        attachedTo?.constructors?.firstOrNull { c -> c.parameters.size == 1 && c.parameters[0].type == Token::class.java }
-                            ?.newInstance(tokens[0] as T) as FASTNode?
-                    oneArgNode
-                        ?: attachedTo?.constructors?.firstOrNull { c -> c.parameters.isEmpty() }
-                            ?.newInstance() as FASTNode
-                } else {
-                    FASTToken(tokens[0] as T)
-                }
-
-                return MatchResults(listOf(toConsume), tokens.subList(1, tokens.size), null)
+                val toConsume = tokenFactory?.invoke(token) ?: attachedTo?.invoke() ?: FASTToken(token as T)
+
+                return MatchResults(listOf(toConsume), position + 1, null)
             }
-            return MatchResults(listOf(), tokens.subList(1, tokens.size), null)
+            return MatchResults(listOf(), position + 1, null)
 
         } else
             return MatchResults(
                 listOf(),
-                tokens,
-                ParsingError(name, if (tokens.isNotEmpty()) tokens[0].token else "end of file")
+                position,
+                ParsingError(name, token?.token ?: "end of file")
             )
     }
 
+    /**
+     * Attaches this node to the FAST nodes made by [factory] from the matched token, e.g. literals that keep its value.
+     * Nodes that do not need the token are attached with [mapTo] instead.
+     */
+    fun mapToken(factory: (Token) -> FASTNode) {
+        tokenFactory = factory
+    }
+
     override fun clone(): ASTNode {
         return TokenNode(nodeType, shouldBeReturned)
     }
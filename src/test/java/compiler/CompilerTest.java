@@ -1,11 +1,18 @@
 package compiler;
 
+import com.compilingdogs.interpretation.Runtime;
+import com.compilingdogs.parser.FASTCodec;
 import com.compilingdogs.parser.ParserKt;
+import com.compilingdogs.parser.ParserOptions;
+import com.compilingdogs.parser.ProgramCache;
+import com.compilingdogs.parser.ast.AlternationStrategy;
+import com.compilingdogs.parser.ast.CompiledGrammarKt;
 import com.compilingdogs.parser.ast.FASTNode;
 import com.google.gson.*;
 import exception.LexicalAnalysisException;
 import org.junit.Test;
 import org.slf4j.Logger;
+import stages.CharArraySourceReader;
 import stages.LexicalAnalyzer;
 import tokens.Token;
 
@@ -13,6 +20,26 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class CompilerTest {
 
@@ -39,6 +66,24 @@ public class CompilerTest {
 //            "src/test/resources/case_16.pd"
     };
 
+    // Files the parser modes are compared on. The grammar gets past the first statement of each of them,
+    // so the trees are not empty, and parsing them without memoization still takes little time
+    private final String[] parsingSourceCodes = new String[]{
+            "src/test/resources/case_0.pd",
+            "src/test/resources/case_2.pd",
+            "src/test/resources/case_7.pd",
+            "src/test/resources/case_10.pd",
+            "src/test/resources/case_15.pd"
+    };
+
+    private Map<String, List<Token>> tokenizeParsingSourceCodes() throws IOException {
+        var tokens = new LinkedHashMap<String, List<Token>>();
+        for (String sourceCode : this.parsingSourceCodes) {
+            tokens.put(sourceCode, lexicalAnalyzer.tokenize(new File(sourceCode)));
+        }
+        return tokens;
+    }
+
     @Test
     public void getTestJSON() throws IOException {
         for (String testingSourceCode : this.testingSourceCodes) {
@@ -46,6 +91,238 @@ public class CompilerTest {
         }
     }
 
+    @Test
+    public void memoizedParseMatchesPlainParse() throws IOException {
+        var plain = new ParserOptions();
+        plain.setMemoizing(false);
+        for (var entry : this.tokenizeParsingSourceCodes().entrySet()) {
+            var name = entry.getKey();
+            var tokens = entry.getValue();
+
+            assertEquals(name, ParserKt.parse(tokens, plain).toString(), ParserKt.parse(tokens).toString());
+        }
+    }
+
+    @Test
+    public void predictiveParseMatchesBlindParse() throws IOException {
+        var blind = new ParserOptions();
+        blind.setPredictive(false);
+        long blindCalls = 0;
+        long predictiveCalls = 0;
+        for (var entry : this.tokenizeParsingSourceCodes().entrySet()) {
+            var name = entry.getKey();
+            var tokens = entry.getValue();
+            var blindContext = ParserKt.matchContext(tokens, blind);
+            var predictiveContext = ParserKt.matchContext(tokens, new ParserOptions());
+
+            assertEquals(name, ParserKt.parse(blindContext).toString(), ParserKt.parse(predictiveContext).toString());
+            assertTrue(name, predictiveContext.getMatchCalls() < blindContext.getMatchCalls());
+            log.info("{}: {} match calls per token without FIRST sets, {} with them", name,
+                    blindContext.getMatchCalls() / (double) tokens.size(),
+                    predictiveContext.getMatchCalls() / (double) tokens.size());
+            blindCalls += blindContext.getMatchCalls();
+            predictiveCalls += predictiveContext.getMatchCalls();
+        }
+        // Skipping the alternatives that cannot start with the next token cuts the calls about four times
+        assertTrue(blindCalls + " blind calls, " + predictiveCalls + " predictive calls", blindCalls >= 3 * predictiveCalls);
+    }
+
+    @Test
+    public void parallelParseMatchesSequentialParse() throws IOException {
+        var threads = new AtomicInteger();
+        var pool = new ForkJoinPool(2, p -> {
+            threads.incrementAndGet();
+            return ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+        }, null, false);
+        var parallel = new ParserOptions();
+        parallel.setAlternationStrategy(AlternationStrategy.PARALLEL);
+        parallel.setParallelThreshold(1);
+        parallel.setParallelPool(pool);
+        try {
+            for (var entry : this.tokenizeParsingSourceCodes().entrySet()) {
+                var name = entry.getKey();
+                var tokens = entry.getValue();
+
+                assertEquals(name, ParserKt.parse(tokens).toString(), ParserKt.parse(tokens, parallel).toString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        // The variants ran on the given pool
+        assertTrue(threads.get() > 0);
+    }
+
+    @Test
+    public void compiledParseMatchesInterpretedParse() throws IOException {
+        var compiled = new ParserOptions();
+        compiled.setCompiled(true);
+        for (var entry : this.tokenizeParsingSourceCodes().entrySet()) {
+            var name = entry.getKey();
+            var tokens = entry.getValue();
+
+            assertEquals(name, ParserKt.parse(tokens).toString(), ParserKt.parse(tokens, compiled).toString());
+        }
+    }
+
+    @Test
+    public void operatorsOfOneLevelAreLeftAssociative() throws IOException {
+        var compiled = new ParserOptions();
+        compiled.setCompiled(true);
+        var expressions = new String[][]{
+                {"10 - 3 - 2", "5"},
+                {"8 / 4 / 2", "1"},
+                {"10 - 3 + 2", "9"},
+                {"2 * 6 / 3", "4"},
+                {"10 - 2 * 3 + 1", "5"},
+                {"20 / 2 - 3 - 4", "3"},
+        };
+        for (var expression : expressions) {
+            var tokens = lexicalAnalyzer.tokenize(new CharArraySourceReader("var x := " + expression[0] + "\n"));
+            for (var options : new ParserOptions[]{new ParserOptions(), compiled}) {
+                var runtime = new Runtime();
+                ParserKt.parse(tokens, options).evaluate(runtime);
+
+                assertEquals(expression[0], expression[1], String.valueOf(runtime.getValue("x")));
+            }
+        }
+    }
+
+    @Test
+    public void compiledParseReportsFurthestFailure() throws IOException {
+        var tokens = lexicalAnalyzer.tokenize(new CharArraySourceReader("if a then\nvar b := 1\n"));
+        // Completes the grammar before compiling a part of it
+        ParserKt.parse(tokens);
+        var statement = CompiledGrammarKt.compileGrammar(ParserKt.getStatement());
+
+        try {
+            statement.parse(tokens);
+            fail("An if statement without end matched");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("\"end\""));
+            assertTrue(e.getMessage(), e.getMessage().contains("received=end of file"));
+        }
+    }
+
+    @Test
+    public void longOperatorChainParses() throws IOException {
+        var expression = new StringBuilder("a");
+        for (int i = 0; i < 300; ++i) {
+            expression.append(i % 3 == 0 ? " + 1" : i % 3 == 1 ? " * a" : " < 2");
+        }
+        var tokens = lexicalAnalyzer.tokenize(
+                new CharArraySourceReader("var a := 1\nvar x := " + expression + "\n"));
+        var compiled = new ParserOptions();
+        compiled.setCompiled(true);
+
+        assertEquals(ParserKt.parse(tokens).toString(), ParserKt.parse(tokens, compiled).toString());
+    }
+
+    @Test
+    public void encodedTreeDecodesToSameTree() throws IOException {
+        for (var entry : this.tokenizeParsingSourceCodes().entrySet()) {
+            var name = entry.getKey();
+            var tree = ParserKt.parse(entry.getValue());
+
+            assertEquals(name, tree.toString(), FASTCodec.INSTANCE.decode(FASTCodec.INSTANCE.encode(tree)).toString());
+        }
+    }
+
+    @Test
+    public void programCacheParsesOnce() throws IOException {
+        var directory = Files.createTempDirectory("programs");
+        var cache = new ProgramCache(64L * 1024 * 1024, directory.toFile(), new ParserOptions());
+        for (String name : this.parsingSourceCodes) {
+            var source = Files.readString(new File(name).toPath());
+            var parsed = cache.get(source);
+            var cached = cache.get(source);
+
+            assertEquals(name, parsed.toString(), cached.toString());
+            assertNotSame(name, parsed, cached);
+        }
+        assertEquals(this.parsingSourceCodes.length, cache.getMisses());
+        assertEquals(this.parsingSourceCodes.length, cache.getHits());
+
+        // A new cache over the same directory does not parse again
+        var reopened = new ProgramCache(64L * 1024 * 1024, directory.toFile(), new ParserOptions());
+        var source = Files.readString(new File(this.parsingSourceCodes[0]).toPath());
+        assertEquals(cache.get(source).toString(), reopened.get(source).toString());
+        assertEquals(0, reopened.getMisses());
+    }
+
+    @Test
+    public void programCacheParsesConcurrentlyFromColdStart() throws Exception {
+        // The grammar is completed by the first parse of the process, so load the parser anew to start without it
+        var urls = new ArrayList<URL>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            urls.add(new File(entry).toURI().toURL());
+        }
+        try (var loader = new URLClassLoader(urls.toArray(new URL[0]), ClassLoader.getPlatformClassLoader())) {
+            var cacheClass = loader.loadClass(ProgramCache.class.getName());
+            var cache = cacheClass.getConstructor().newInstance();
+            var get = cacheClass.getMethod("get", String.class);
+
+            var sources = new ArrayList<String>();
+            for (String name : this.parsingSourceCodes) {
+                sources.add(Files.readString(new File(name).toPath()));
+            }
+            var pool = Executors.newFixedThreadPool(sources.size());
+            try {
+                var start = new CountDownLatch(1);
+                var trees = new ArrayList<Future<Object>>();
+                for (String source : sources) {
+                    trees.add(pool.submit(() -> {
+                        start.await();
+                        return get.invoke(cache, source);
+                    }));
+                }
+                start.countDown();
+
+                for (int i = 0; i < sources.size(); ++i) {
+                    var tokens = lexicalAnalyzer.tokenize(new CharArraySourceReader(sources.get(i)));
+                    assertEquals(this.parsingSourceCodes[i], ParserKt.parse(tokens).toString(),
+                            trees.get(i).get(1, TimeUnit.MINUTES).toString());
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void programCacheIgnoresTreesOfChangedClasses() throws IOException {
+        var directory = Files.createTempDirectory("programs");
+        var source = Files.readString(new File(this.parsingSourceCodes[0]).toPath());
+        var parsed = new ProgramCache(64L * 1024 * 1024, directory.toFile(), new ParserOptions()).get(source);
+
+        // Pretend that the class of the root had other fields when the tree was stored
+        var file = directory.toFile().listFiles()[0].toPath();
+        var encoded = Files.readAllBytes(file);
+        var name = parsed.getClass().getName().getBytes(StandardCharsets.UTF_8);
+        int fingerprint = indexOf(encoded, name) + name.length;
+        encoded[fingerprint] ^= 1;
+        Files.write(file, encoded);
+
+        try {
+            FASTCodec.INSTANCE.decode(encoded);
+            fail("Decoded a tree of a class with other fields");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(parsed.getClass().getName()));
+        }
+        var reopened = new ProgramCache(64L * 1024 * 1024, directory.toFile(), new ParserOptions());
+        assertEquals(parsed.toString(), reopened.get(source).toString());
+        assertEquals(1, reopened.getMisses());
+        assertEquals(0, reopened.getHits());
+    }
+
+    private static int indexOf(byte[] bytes, byte[] part) {
+        for (int i = 0; i + part.length <= bytes.length; ++i) {
+            if (Arrays.equals(bytes, i, i + part.length, part, 0, part.length)) {
+                return i;
+            }
+        }
+        throw new AssertionError("Not found");
+    }
+
     public void createTestingResults(String fullPath) throws IOException {
         var gsonTok = new GsonBuilder().setPrettyPrinting().registerTypeHierarchyAdapter(
                 Token.class,
@@ -65,18 +342,22 @@ public class CompilerTest {
             var generatedTokens = lexicalAnalyzer.tokenize(sourceCode);
             var generatedAst = ParserKt.parse(generatedTokens);
 
-            var tokensOut = new FileOutputStream(
-                    new File("src/test/resources/lexical_analyzer_results/" + fileName + "_tokens.json")
-            );
-            var astOut = new FileOutputStream(
-                    new File("src/test/resources/syntax_analyzer_results/" + fileName + "_ast.json")
-            );
+            var tokensFile = new File("src/test/resources/lexical_analyzer_results/" + fileName + "_tokens.json");
+            var astFile = new File("src/test/resources/syntax_analyzer_results/" + fileName + "_ast.json");
 
             String resTokens = gsonTok.toJson(generatedTokens);
             String resAst = gsonAst.toJson(generatedAst);
 
-            tokensOut.write(resTokens.getBytes());
-            astOut.write(resAst.getBytes());
+            // Run with -DupdateGoldens=true to write the results after an intended change of the output
+            if (Boolean.getBoolean("updateGoldens")) {
+                try (var tokensOut = new FileOutputStream(tokensFile); var astOut = new FileOutputStream(astFile)) {
+                    tokensOut.write(resTokens.getBytes());
+                    astOut.write(resAst.getBytes());
+                }
+            } else {
+                assertEquals(tokensFile.getPath(), Files.readString(tokensFile.toPath()), resTokens);
+                assertEquals(astFile.getPath(), Files.readString(astFile.toPath()), resAst);
+            }
         } catch (LexicalAnalysisException e) {
             log.error(e.getMessage());
             e.printStackTrace();
@@ -84,12 +365,24 @@ public class CompilerTest {
     }
 
     public static class TDeserializer implements JsonSerializer<Token> {
+        @Override
+        public JsonElement serialize(Token src, Type typeOfSrc, JsonSerializationContext context) {
+            JsonElement serialize = new PositionSerializer().serialize(src, typeOfSrc, context);
+            JsonObject o = (JsonObject) serialize;
+            o.addProperty("class", src.getClass().getSimpleName());
+            return serialize;
+        }
+    }
+
+    // Positions are looked up when first asked for, so the fields may not hold them yet
+    public static class PositionSerializer implements JsonSerializer<Token> {
         @Override
         public JsonElement serialize(Token src, Type typeOfSrc, JsonSerializationContext context) {
             Gson gson = new Gson();
             JsonElement serialize = gson.toJsonTree(src);
             JsonObject o = (JsonObject) serialize;
-            o.addProperty("class", src.getClass().getSimpleName());
+            o.addProperty("line", src.getLine());
+            o.addProperty("column", src.getColumn());
             return serialize;
         }
     }
@@ -99,7 +392,7 @@ public class CompilerTest {
         public JsonElement serialize(
                 FASTNode src, Type typeOfSrc, JsonSerializationContext context
         ) {
-            Gson gson = new Gson();
+            Gson gson = new GsonBuilder().registerTypeHierarchyAdapter(Token.class, new PositionSerializer()).create();
             JsonElement serialize = gson.toJsonTree(src);
             return serialize;
         }
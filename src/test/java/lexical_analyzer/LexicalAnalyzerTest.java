@@ -0,0 +1,527 @@
+package lexical_analyzer;
+
+import com.google.gson.Gson;
+import exception.LexicalAnalysisException;
+import org.junit.Test;
+import stages.CharArraySourceReader;
+import stages.Diagnostic;
+import stages.IncrementalLexer;
+import stages.LexerOptions;
+import stages.LexicalAnalyzer;
+import stages.ParallelLexicalAnalyzer;
+import stages.StreamSourceReader;
+import stages.TokenStream;
+import tokens.ErrorToken;
+import tokens.Literal;
+import tokens.Separator;
+import tokens.Token;
+import tokens.TokenKind;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LexicalAnalyzerTest {
+
+    private final LexicalAnalyzer lexicalAnalyzer = LexicalAnalyzer.getInstance();
+
+    private static File[] testingSourceCodes() {
+        var sources = new File("src/test/resources").listFiles((dir, name) -> name.endsWith(".pd"));
+        return Objects.requireNonNull(sources);
+    }
+
+    private static List<String> describe(List<Token> tokens) {
+        var described = new ArrayList<String>();
+        for (Token token : tokens) {
+            described.add(
+                    token.getClass().getSimpleName() + " " + token + " " + token.getLine() + ":" + token.getColumn()
+            );
+        }
+        return described;
+    }
+
+    private List<String> tokenizeWithReaderLoop(File sourceCode, Charset charset) throws IOException {
+        try (var reader = new FileReader(sourceCode, charset)) {
+            return describe(lexicalAnalyzer.tokenize(new StreamSourceReader(reader)));
+        } catch (LexicalAnalysisException e) {
+            return List.of(e.getMessage());
+        }
+    }
+
+    private List<String> tokenizeWithOptions(File sourceCode, LexerOptions options) throws IOException {
+        try {
+            return describe(lexicalAnalyzer.tokenize(sourceCode, options));
+        } catch (LexicalAnalysisException e) {
+            return List.of(e.getMessage());
+        }
+    }
+
+    private List<String> tokenizeWithStream(File sourceCode, LexerOptions options) throws IOException {
+        try (TokenStream stream = lexicalAnalyzer.stream(sourceCode, options)) {
+            var tokens = new ArrayList<Token>();
+            while (stream.hasNext()) {
+                tokens.add(stream.next());
+            }
+            return describe(tokens);
+        } catch (LexicalAnalysisException e) {
+            return List.of(e.getMessage());
+        }
+    }
+
+    @Test
+    public void charArrayEngineMatchesReaderLoop() throws IOException {
+        for (File sourceCode : testingSourceCodes()) {
+            assertEquals(
+                    sourceCode.getName(),
+                    tokenizeWithReaderLoop(sourceCode, Charset.defaultCharset()),
+                    tokenizeWithOptions(sourceCode, new LexerOptions())
+            );
+        }
+    }
+
+    @Test
+    public void mappedInputMatchesUtf8ReaderLoop() throws IOException {
+        var mapped = new LexerOptions().setInputMode(LexerOptions.InputMode.MAPPED);
+        for (File sourceCode : testingSourceCodes()) {
+            assertEquals(
+                    sourceCode.getName(),
+                    tokenizeWithReaderLoop(sourceCode, StandardCharsets.UTF_8),
+                    tokenizeWithOptions(sourceCode, mapped)
+            );
+        }
+    }
+
+    @Test
+    public void mappedInputDecodesMultiByteCharacters() throws IOException {
+        var sourceCode = File.createTempFile("utf8", ".pd");
+        sourceCode.deleteOnExit();
+        Files.write(sourceCode.toPath(), "var s := \"h\u00e9llo \u20ac \ud834\udd1e\"\n".getBytes(StandardCharsets.UTF_8));
+
+        var tokens = lexicalAnalyzer.tokenize(
+                sourceCode,
+                new LexerOptions().setInputMode(LexerOptions.InputMode.MAPPED)
+        );
+        var literal = tokens.get(3);
+        assertTrue(literal instanceof Literal.StringLiteral);
+        assertEquals("h\u00e9llo \u20ac \ud834\udd1e", ((Literal.StringLiteral) literal).getValue());
+    }
+
+    @Test
+    public void concurrentTokenizationMatchesSequential() throws Exception {
+        var expected = new HashMap<File, List<String>>();
+        for (File sourceCode : testingSourceCodes()) {
+            expected.put(sourceCode, tokenizeWithOptions(sourceCode, new LexerOptions()));
+        }
+
+        int threads = 16;
+        int rounds = 25;
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        try {
+            var futures = new ArrayList<Future<List<String>>>();
+            var sources = new ArrayList<File>();
+            for (int round = 0; round < rounds; ++round) {
+                for (File sourceCode : expected.keySet()) {
+                    sources.add(sourceCode);
+                    futures.add(executor.submit((Callable<List<String>>) () -> {
+                        start.await();
+                        return tokenizeWithOptions(sourceCode, new LexerOptions());
+                    }));
+                }
+            }
+            start.countDown();
+
+            for (int i = 0; i < futures.size(); ++i) {
+                var sourceCode = sources.get(i);
+                assertEquals(sourceCode.getName(), expected.get(sourceCode), futures.get(i).get(1, TimeUnit.MINUTES));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void parallelDirectoryTokenizationMatchesSequential() throws IOException {
+        var pool = new ForkJoinPool(4);
+        try {
+            var batch = new ParallelLexicalAnalyzer(pool, new LexerOptions())
+                    .tokenizeTree(new File("src/test/resources"), ".pd");
+
+            assertEquals(testingSourceCodes().length, batch.getFiles().size());
+            for (var result : batch.getFiles()) {
+                var actual = result.isSuccessful()
+                        ? describe(result.getTokens())
+                        : List.of(result.getError().getMessage());
+                assertEquals(
+                        result.getFile().getName(),
+                        tokenizeWithOptions(result.getFile(), new LexerOptions()),
+                        actual
+                );
+            }
+            var failed = new ArrayList<String>();
+            for (var result : batch.getFiles()) {
+                if (!result.isSuccessful()) {
+                    failed.add(result.getFile().getName());
+                }
+            }
+            assertEquals(List.of("case_13.pd", "case_16.pd", "case_8.pd"), failed);
+            assertEquals(3, batch.getFailedCount());
+            assertTrue(batch.getTokenCount() > 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelFileListKeepsOrderOfFiles() throws IOException {
+        var sourceCodes = List.of(
+                new File("src/test/resources/case_5.pd"),
+                new File("src/test/resources/case_8.pd"),
+                new File("src/test/resources/case_0.pd")
+        );
+        var batch = new ParallelLexicalAnalyzer().tokenize(sourceCodes);
+
+        assertEquals(sourceCodes.size(), batch.getFiles().size());
+        for (int i = 0; i < sourceCodes.size(); ++i) {
+            var result = batch.getFiles().get(i);
+            assertEquals(sourceCodes.get(i), result.getFile());
+            assertEquals(
+                    result.getFile().getName(),
+                    tokenizeWithOptions(result.getFile(), new LexerOptions()),
+                    result.isSuccessful() ? describe(result.getTokens()) : List.of(result.getError().getMessage())
+            );
+        }
+        assertFalse(batch.getFiles().get(1).isSuccessful());
+        assertEquals(1, batch.getFailedCount());
+    }
+
+    @Test
+    public void parallelBatchKeepsGoingAfterLiteralOutOfRange() throws IOException {
+        var directory = Files.createTempDirectory("sources");
+        var oversized = directory.resolve("oversized.pd").toFile();
+        Files.writeString(oversized.toPath(), "var y := 99999999999\n");
+        var sourceCodes = List.of(oversized, new File("src/test/resources/case_0.pd"));
+        var batch = new ParallelLexicalAnalyzer().tokenize(sourceCodes);
+
+        assertEquals(sourceCodes.size(), batch.getFiles().size());
+        assertTrue(batch.getFiles().get(0).getError() instanceof NumberFormatException);
+        assertTrue(batch.getFiles().get(1).isSuccessful());
+        assertEquals(1, batch.getFailedCount());
+    }
+
+    @Test
+    public void streamMatchesMaterializedList() throws IOException {
+        var mapped = new LexerOptions().setInputMode(LexerOptions.InputMode.MAPPED);
+        for (File sourceCode : testingSourceCodes()) {
+            assertEquals(
+                    sourceCode.getName(),
+                    tokenizeWithOptions(sourceCode, new LexerOptions()),
+                    tokenizeWithStream(sourceCode, new LexerOptions())
+            );
+            assertEquals(
+                    sourceCode.getName(),
+                    tokenizeWithOptions(sourceCode, mapped),
+                    tokenizeWithStream(sourceCode, mapped)
+            );
+        }
+    }
+
+    @Test
+    public void streamResetReturnsToMark() {
+        var stream = lexicalAnalyzer.stream(new CharArraySourceReader("var x := 1.5 + y\n"));
+        assertEquals("var", stream.next().getToken());
+
+        stream.mark();
+        assertEquals("x", stream.next().getToken());
+        assertEquals(":=", stream.next().getToken());
+        assertEquals("1.5", stream.next().getToken());
+
+        stream.reset();
+        assertEquals("x", stream.peek().getToken());
+        assertEquals("x", stream.next().getToken());
+
+        stream.unmark();
+        assertEquals(":=", stream.next().getToken());
+        assertEquals("1.5", stream.next().getToken());
+        assertEquals("+", stream.next().getToken());
+        assertEquals("y", stream.next().getToken());
+        assertTrue(stream.hasNext());
+        stream.next();
+        assertFalse(stream.hasNext());
+        assertNull(stream.peek());
+    }
+
+    @Test
+    public void streamDoesNotMergeSeparatedNumbers() {
+        // Used to merge into "-1.512" after the fact
+        var stream = lexicalAnalyzer.stream(new CharArraySourceReader("x := - 1.5 12\n"));
+        assertEquals("x", stream.next().getToken());
+        assertEquals(":=", stream.next().getToken());
+        assertEquals("-", stream.next().getToken());
+        assertEquals("1.5", stream.next().getToken());
+        assertEquals("12", stream.next().getToken());
+        assertEquals("\n", stream.next().getToken());
+        assertFalse(stream.hasNext());
+    }
+
+    @Test
+    public void compactBufferMatchesTokenList() throws IOException {
+        for (File sourceCode : testingSourceCodes()) {
+            List<String> compact;
+            try {
+                var buffer = lexicalAnalyzer.tokenizeCompact(sourceCode);
+                compact = describe(buffer.asList());
+                for (int i = 0; i < buffer.size(); ++i) {
+                    assertEquals(buffer.get(i).getToken(), buffer.getText(i));
+                }
+            } catch (LexicalAnalysisException e) {
+                compact = List.of(e.getMessage());
+            }
+            assertEquals(sourceCode.getName(), tokenizeWithOptions(sourceCode, new LexerOptions()), compact);
+        }
+    }
+
+    @Test
+    public void fixedTextTokensShareCanonicalText() throws IOException {
+        var tokens = lexicalAnalyzer.tokenize(new CharArraySourceReader("if x is int then\n  x := x + 1\nend"));
+        for (Token token : tokens) {
+            var kind = token.getKind();
+            assertSame(kind.getTokenClass(), token.getClass());
+            if (kind.hasFixedText()) {
+                assertSame(kind.getText(), token.getToken());
+            }
+        }
+        assertSame(TokenKind.LOGIC_IS_OPERATOR, tokens.get(2).getKind());
+        assertSame(TokenKind.EMPTY_KEYWORD, TokenKind.forFixedText("empty"));
+        assertNull(TokenKind.forFixedText("x"));
+    }
+
+    @Test
+    public void numbersAreScannedInOnePass() throws IOException {
+        var tokens = lexicalAnalyzer.tokenize(
+                new CharArraySourceReader("a[1..10] := 12.5 + 3. - 1 .5 * 99999999999.25")
+        );
+        var kinds = new ArrayList<TokenKind>();
+        var texts = new ArrayList<String>();
+        for (Token token : tokens) {
+            kinds.add(token.getKind());
+            texts.add(token.getToken());
+        }
+        assertEquals(
+                List.of("a", "[", "1", "..", "10", "]", ":=", "12.5", "+", "3", ".", "-", "1", ".", "5", "*", "99999999999.25"),
+                texts
+        );
+        assertSame(TokenKind.INTEGER_LITERAL, kinds.get(2));
+        assertSame(TokenKind.RANGE_OPERATOR, kinds.get(3));
+        assertSame(TokenKind.REAL_LITERAL, kinds.get(7));
+        assertSame(TokenKind.INTEGER_LITERAL, kinds.get(9));
+        assertSame(TokenKind.PERIOD_SEPARATOR, kinds.get(13));
+        assertSame(TokenKind.REAL_LITERAL, kinds.get(16));
+        assertEquals(13, tokens.get(7).getColumn());
+    }
+
+    @Test
+    public void incrementalEditsMatchFullTokenization() throws IOException {
+        var random = new Random(12);
+        var fragments = List.of("", " ", "\n", "1", ".", "5", "x", "+", ":=", "(", "//", "/*", "*/", "\"", "\t", "end\n");
+        for (File sourceCode : testingSourceCodes()) {
+            IncrementalLexer lexer;
+            try {
+                lexer = IncrementalLexer.of(sourceCode);
+            } catch (LexicalAnalysisException e) {
+                continue;
+            }
+            for (int i = 0; i < 200; ++i) {
+                var source = lexer.getSource();
+                int offset = random.nextInt(source.length() + 1);
+                int removed = random.nextInt(Math.min(4, source.length() - offset) + 1);
+                var inserted = fragments.get(random.nextInt(fragments.size()));
+
+                var edited = source.substring(0, offset) + inserted + source.substring(offset + removed);
+                List<Token> expected;
+                try {
+                    expected = lexicalAnalyzer.tokenize(new CharArraySourceReader(edited));
+                } catch (LexicalAnalysisException | NumberFormatException e) {
+                    try {
+                        lexer.edit(offset, removed, inserted);
+                    } catch (LexicalAnalysisException | NumberFormatException rejected) {
+                        assertEquals(source, lexer.getSource());
+                        continue;
+                    }
+                    throw new AssertionError("Edit should have been rejected: " + e.getMessage());
+                }
+
+                var result = lexer.edit(offset, removed, inserted);
+                var actual = lexer.getTokens();
+                assertEquals(edited, lexer.getSource());
+                assertEquals(sourceCode.getName(), describe(expected), describe(actual));
+                for (int j = 0; j < expected.size(); ++j) {
+                    assertEquals(expected.get(j).getOffset(), actual.get(j).getOffset());
+                }
+                assertTrue(result.getRescannedCount() <= expected.size());
+            }
+        }
+    }
+
+    @Test
+    public void incrementalEditRescansOnlyNearbyTokens() {
+        var lexer = new IncrementalLexer("var a := 1\nvar b := 2\nvar c := 3\nvar d := 4\n");
+        var result = lexer.edit(15, 1, "bb");
+        assertEquals("var a := 1\nvar bb := 2\nvar c := 3\nvar d := 4\n", lexer.getSource());
+        assertEquals(3, result.getRescannedCount());
+        assertEquals(3, result.getReplacedCount());
+
+        var tokens = lexer.getTokens();
+        assertEquals("bb", tokens.get(6).getToken());
+        assertEquals(":=", tokens.get(7).getToken());
+        assertEquals(8, tokens.get(7).getColumn());
+        assertEquals("c", tokens.get(11).getToken());
+        assertEquals(27, tokens.get(11).getOffset());
+        assertEquals(3, tokens.get(11).getLine());
+    }
+
+    @Test
+    public void newLineRunsAreCoalesced() throws IOException {
+        var options = new LexerOptions().setCoalescingNewLines(true);
+        var tokens = lexicalAnalyzer.tokenize(
+                new CharArraySourceReader("var a := 1\n\n  // note\n\nprint a;\n\n"),
+                options
+        );
+        var texts = new ArrayList<String>();
+        for (Token token : tokens) {
+            texts.add(token.toString());
+        }
+        assertEquals(List.of("var", "a", ":=", "1", "\\n", "print", "a", ";", "\\n"), texts);
+
+        var blankLines = (Separator.NewLineSeparator) tokens.get(4);
+        // Four line breaks, one of them ending the comment; "print" is on line 5
+        assertEquals(1, blankLines.getLine());
+        assertEquals(4, blankLines.getLineCount());
+        assertEquals(5, blankLines.getEndLine());
+        assertEquals(5, tokens.get(5).getLine());
+        assertEquals(10, blankLines.getOffset());
+        assertEquals(2, ((Separator.NewLineSeparator) tokens.get(8)).getLineCount());
+        assertEquals(7, ((Separator.NewLineSeparator) tokens.get(8)).getEndLine());
+
+        for (File sourceCode : testingSourceCodes()) {
+            assertEquals(
+                    sourceCode.getName(),
+                    tokenizeWithOptions(sourceCode, options),
+                    tokenizeWithStream(sourceCode, options)
+            );
+        }
+    }
+
+    @Test
+    public void onlyCoalescedNewLinesDumpTheirEndLine() throws IOException {
+        var source = "var a := 1\n\nprint a\n";
+        var gson = new Gson();
+        for (Token token : lexicalAnalyzer.tokenize(new CharArraySourceReader(source))) {
+            assertFalse(token.toString(), gson.toJsonTree(token).getAsJsonObject().has("endLine"));
+        }
+
+        var coalesced = lexicalAnalyzer.tokenize(
+                new CharArraySourceReader(source),
+                new LexerOptions().setCoalescingNewLines(true)
+        );
+        assertEquals(3, gson.toJsonTree(coalesced.get(4)).getAsJsonObject().get("endLine").getAsInt());
+    }
+
+    @Test
+    public void recoveringModeReportsEveryError() throws IOException {
+        var result = lexicalAnalyzer.tokenizeRecovering(
+                new CharArraySourceReader("var a := 1 @x;\nvar b := 'open\nvar c := 2 ^ 3\nprint c"),
+                new LexerOptions()
+        );
+        var diagnostics = result.getDiagnostics();
+        assertEquals(3, diagnostics.size());
+        assertEquals(List.of(1, 2, 3), List.of(
+                diagnostics.get(0).getLine(),
+                diagnostics.get(1).getLine(),
+                diagnostics.get(2).getLine()
+        ));
+        assertEquals(12, diagnostics.get(0).getColumn());
+        assertEquals(11, diagnostics.get(0).getOffset());
+        assertEquals(10, diagnostics.get(1).getColumn());
+
+        var texts = new ArrayList<String>();
+        for (Token token : result.getTokens()) {
+            texts.add(token instanceof ErrorToken ? "!" + token.getToken() : token.toString());
+        }
+        assertEquals(
+                List.of("var", "a", ":=", "1", "!@x", ";", "\\n",
+                        "var", "b", ":=", "!'open", "\\n",
+                        "var", "c", ":=", "2", "!^", "3", "\\n",
+                        "print", "c"),
+                texts
+        );
+    }
+
+    @Test
+    public void recoveringModeMatchesThrowingMode() throws IOException {
+        for (File sourceCode : testingSourceCodes()) {
+            var result = lexicalAnalyzer.tokenizeRecovering(sourceCode, new LexerOptions());
+            var expected = tokenizeWithOptions(sourceCode, new LexerOptions());
+            if (result.hasErrors()) {
+                assertEquals(sourceCode.getName(), expected, List.of(result.getDiagnostics().get(0).getMessage()));
+                for (Diagnostic diagnostic : result.getDiagnostics()) {
+                    assertTrue(diagnostic.getMessage().contains("line - " + diagnostic.getLine() + ","));
+                }
+            } else {
+                assertEquals(sourceCode.getName(), expected, describe(result.getTokens()));
+            }
+        }
+    }
+
+    @Test
+    public void compactPositionsAreComputedFromOffsets() throws IOException {
+        var source = "var a := 1\n\tvar b\t:= 'x\ty' /* c\n */ + a\n\n\tprint b";
+        var tokens = lexicalAnalyzer.tokenize(new CharArraySourceReader(source));
+        var buffer = lexicalAnalyzer.tokenizeCompact(new CharArraySourceReader(source));
+        assertEquals(describe(tokens), describe(buffer.asList()));
+        for (int i = 0; i < tokens.size(); ++i) {
+            assertEquals(tokens.get(i).getLine(), buffer.getLine(i));
+            assertEquals(tokens.get(i).getColumn(), buffer.getColumn(i));
+        }
+        assertEquals(2, tokens.get(5).getLine());
+        assertEquals(5, tokens.get(5).getColumn());
+        // A tab moves to the next tab stop
+        assertEquals(13, tokens.get(7).getColumn());
+        assertEquals(3, tokens.get(10).getLine());
+        // A line break is on the line it ends
+        assertEquals(1, tokens.get(4).getLine());
+        assertEquals(11, tokens.get(4).getColumn());
+    }
+
+    @Test
+    public void incrementalEditKeepsTabStops() throws IOException {
+        var lexer = new IncrementalLexer("var a := 1\nvar b\t:= 2\n");
+        lexer.edit(15, 1, "bb");
+        assertEquals(describe(lexicalAnalyzer.tokenize(new CharArraySourceReader(lexer.getSource()))), describe(lexer.getTokens()));
+        assertEquals(9, lexer.getTokens().get(7).getColumn());
+
+        lexer.edit(15, 2, "bbbb");
+        assertEquals(describe(lexicalAnalyzer.tokenize(new CharArraySourceReader(lexer.getSource()))), describe(lexer.getTokens()));
+        assertEquals(13, lexer.getTokens().get(7).getColumn());
+    }
+}